@@ -0,0 +1,116 @@
+package pt.ua.towerdefense.benchmarks;
+
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+import pt.ua.towerdefense.engine.TickEngine;
+import pt.ua.towerdefense.monitoring.JfrSimulationListener;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check that a steady-state tick of the tick engine does not allocate.
+ * A game is played headless on a serpentine map long enough for no monster to reach its end,
+ * with towers along the path that keep scanning and shooting monsters that never die. Once
+ * every monster entered the world and the code is compiled, the bytes allocated by the thread
+ * that runs the ticks are measured over a number of ticks, and the check fails if there are any.
+ * The game is played twice, without a listener and with the flight recorder listener that every
+ * game installs, which must not allocate either while no recording has its events enabled.<br>
+ * Run it from the benchmarks jar, after mvn package:
+ * <pre>
+ *     java -cp target/benchmarks.jar pt.ua.towerdefense.benchmarks.AllocationCheck [warmup_ticks] [measured_ticks]
+ * </pre>
+ *
+ * @author Eduardo Sousa
+ */
+public class AllocationCheck {
+    /* Number of columns of the map */
+    private static final int COLUMNS = 128;
+
+    /* Number of lines of the map crossed by the path */
+    private static final int PATH_LINES = 32;
+
+    /* Number of monsters of the game, that all enter the world during the warmup */
+    private static final int MONSTERS = 400;
+
+    /* Number of columns between two towers on the same wall line */
+    private static final int TOWER_SPACING = 16;
+
+    public static void main(String[] args) {
+        int warmupTicks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int measuredTicks = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        long withoutListener = measure(false, warmupTicks, measuredTicks);
+        long withFlightRecorder = measure(true, warmupTicks, measuredTicks);
+
+        if(withoutListener > 0 || withFlightRecorder > 0)
+            System.exit(1);
+    }
+
+    /* Plays a game and returns the bytes allocated by its measured ticks */
+    private static long measure(boolean flightRecorder, int warmupTicks, int measuredTicks) {
+        StepTicker ticker = new StepTicker();
+        SimulationListener listener = flightRecorder ? new JfrSimulationListener(ticker) : SimulationListener.NONE;
+        BenchmarkWorld benchmarkWorld = new BenchmarkWorld(COLUMNS, PATH_LINES, listener);
+        WorldState world = benchmarkWorld.getWorld();
+        SpawnScheduler spawner = new SpawnScheduler(ticker, MONSTERS, 0);
+        MonsterAttributes monsterAttributes = new MonsterAttributes(Integer.MAX_VALUE, 5, 2);
+        TowerAttributes towerAttributes = new TowerAttributes(1, 1, 1, 1, 2, 1, 3, 2, TargetingPolicy.LAST);
+        List<Tower> towers = new ArrayList<>();
+        List<Monster> monsters = new ArrayList<>();
+
+        // towers on the wall lines between the lines of the path, away from the turns
+        for(int y = 2; y < 2 * PATH_LINES; y += 2) {
+            for(int x = TOWER_SPACING / 2; x < COLUMNS - 2; x += TOWER_SPACING)
+                towers.add(new Tower(world, ticker, new Position(x, y), towerAttributes, benchmarkWorld.getRoute()));
+        }
+
+        for(int i = 0; i < MONSTERS; i++)
+            monsters.add(new Monster(monsterAttributes, world, ticker, benchmarkWorld.getRoute(), spawner));
+
+        monsters.forEach(spawner::enqueue);
+
+        TickEngine engine = new TickEngine(world, towers, monsters, ticker, 0);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for(int i = 0; i < warmupTicks; i++)
+            engine.step();
+
+        if(spawner.getWaiting() > 0 || engine.isFinished()) {
+            System.out.println("The game is not in a steady state after the warmup: " + spawner.getWaiting() +
+                    " monsters still waiting to enter the world.");
+            System.exit(-1);
+        }
+
+        // the first call may allocate on its own
+        threads.getCurrentThreadAllocatedBytes();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+
+        for(int i = 0; i < measuredTicks; i++)
+            engine.step();
+
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.println("Allocated " + allocated + " bytes over " + measuredTicks + " ticks, with " + MONSTERS +
+                " monsters, " + towers.size() + " towers and " + (flightRecorder ? "the flight recorder listener." :
+                "no listener."));
+
+        if(engine.getLeaks() > 0 || engine.getKills() > 0) {
+            System.out.println("Some monster left the world during the measurement, increase the size of the map.");
+            System.exit(-1);
+        }
+
+        return allocated;
+    }
+}
@@ -0,0 +1,181 @@
+package pt.ua.towerdefense.benchmarks;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.rendering.HeadlessRenderer;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.timing.Ticker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.GameMap;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.RegionGrid;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless world used by the benchmarks.
+ * The map is a serpentine path, that starts at the top left corner and runs from side
+ * to side down to the last line, so that its size can be scaled in both directions.
+ * Monsters are placed directly on the cells of the route and towers are never started.
+ *
+ * @author Eduardo Sousa
+ */
+public class BenchmarkWorld {
+    /* Health of the monsters, high enough for them never to die */
+    private static final int HEALTH = Integer.MAX_VALUE;
+
+    /* Ticker of the entities, that are never started */
+    private static final Ticker TICKER = new StepTicker();
+
+    /* World state */
+    private final WorldState world;
+
+    /* Route followed by the monsters */
+    private final Route route;
+
+    /* Distinct cells of the route, in the order they are visited */
+    private final int[] routeCells;
+
+    /* Map of the world */
+    private final GameMap map;
+
+    /**
+     * Constructor for the benchmark world.
+     *
+     * @param columns number of columns of the map, at least 5.
+     * @param pathLines number of lines of the map that are crossed by the path.
+     */
+    public BenchmarkWorld(int columns, int pathLines) {
+        this(columns, pathLines, SimulationListener.NONE);
+    }
+
+    /**
+     * Constructor for the benchmark world, whose events go to a listener.
+     *
+     * @param columns number of columns of the map, at least 5.
+     * @param pathLines number of lines of the map that are crossed by the path.
+     * @param listener listener of the events of the simulation.
+     */
+    public BenchmarkWorld(int columns, int pathLines, SimulationListener listener) {
+        assert columns >= 5;
+        assert pathLines > 0;
+        assert listener != null;
+
+        int lines = 2 * pathLines + 1;
+        Position end = new Position(pathLines % 2 == 1 ? columns - 1 : 0, lines - 2);
+
+        this.map = new GameMap(columns, lines, serpentine(columns, pathLines), new Position(0, 1), end, List.of());
+        this.world = new WorldState(map, new RegionGrid(columns, lines, 1, 1), map.getPathCells(),
+                new HeadlessRenderer(), listener);
+        this.route = new Route(world, Direction.EAST);
+
+        assert route.reachesEnd();
+
+        List<Integer> cells = new ArrayList<>();
+        cells.add(route.getBeginning());
+
+        for(int step = 0; step < route.getLength(); step++) {
+            if(route.getPhase(step) == MonsterPhase.MOVING)
+                cells.add(route.getCell(step));
+        }
+
+        this.routeCells = cells.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Getter for the world state.
+     *
+     * @return the world state.
+     */
+    public WorldState getWorld() {
+        return world;
+    }
+
+    /**
+     * Getter for the route followed by the monsters.
+     *
+     * @return the route.
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Getter for the distinct cells of the route, beginning included.
+     *
+     * @return the cells in the order they are visited.
+     */
+    public int[] getRouteCells() {
+        return routeCells.clone();
+    }
+
+    /**
+     * Adds a tower to a wall cell in the middle of the map.
+     *
+     * @param radarRange radar range of the tower.
+     * @param shotRange shot range of the tower, not larger than the radar range.
+     *
+     * @return the tower, added to the world but not started.
+     */
+    public Tower addTower(int radarRange, int shotRange) {
+        int y = 2 * (map.getNumberOfLines() / 4);
+        int x = map.getNumberOfColumns() / 2;
+
+        TowerAttributes attributes = new TowerAttributes(1, 1, 1, 1, 1, shotRange, radarRange, 1,
+                TargetingPolicy.LAST);
+        Tower tower = new Tower(world, TICKER, new Position(x, y), attributes, route);
+
+        world.addTower(tower);
+
+        return tower;
+    }
+
+    /**
+     * Places a new monster in a free cell of the route.<br>
+     * The beginning of the path must be free.
+     *
+     * @param cell cell where the monster is placed.
+     *
+     * @return the handle of the monster.
+     */
+    public int place(int cell) {
+        int handle = world.tryAddMonster(Direction.EAST, HEALTH, 0);
+
+        assert handle != MonsterStore.NO_HANDLE;
+
+        if(cell != route.getBeginning() && !world.tryMoveMonster(handle, cell))
+            throw new IllegalStateException("Cell " + cell + " is already occupied.");
+
+        return handle;
+    }
+
+    /* Builds the path bitmap of a map whose path crosses the given number of lines, alternating its direction */
+    private static long[] serpentine(int columns, int pathLines) {
+        long[] path = GameMap.newBitmap(columns, 2 * pathLines + 1);
+
+        for(int line = 0; line < pathLines; line++) {
+            int y = 2 * line + 1;
+
+            for(int x = 1; x < columns - 1; x++)
+                GameMap.set(path, y * columns + x);
+
+            if(line == 0)
+                GameMap.set(path, y * columns);
+
+            if(line == pathLines - 1)
+                GameMap.set(path, y * columns + (line % 2 == 0 ? columns - 1 : 0));
+
+            if(line < pathLines - 1)
+                GameMap.set(path, (y + 1) * columns + (line % 2 == 0 ? columns - 2 : 1));
+        }
+
+        return path;
+    }
+}
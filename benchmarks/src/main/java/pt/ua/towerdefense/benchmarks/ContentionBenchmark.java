@@ -0,0 +1,107 @@
+package pt.ua.towerdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of availability queries made by several threads at the same time,
+ * with and without a thread that keeps moving a monster in the same world.
+ *
+ * @author Eduardo Sousa
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+    /* World state */
+    private WorldState world;
+
+    /* Positions of the route that are queried, a power of two of them */
+    private Position[] positions;
+
+    /* Handle of the monster that is moved */
+    private int mover;
+
+    /* Cells between which the monster is moved */
+    private int first;
+    private int second;
+
+    /* True while the monster is in the second cell, only used by the writer */
+    private boolean atSecond;
+
+    /**
+     * Position in the queried positions of each reader.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld benchmarkWorld = new BenchmarkWorld(64, 32);
+        int[] routeCells = benchmarkWorld.getRouteCells();
+
+        world = benchmarkWorld.getWorld();
+        positions = new Position[1024];
+
+        for(int i = 0; i < positions.length; i++) {
+            int cell = routeCells[i % routeCells.length];
+            positions[i] = new Position(world.getCoordinateX(cell), world.getCoordinateY(cell));
+        }
+
+        for(int i = 4; i < routeCells.length; i += 8)
+            benchmarkWorld.place(routeCells[i]);
+
+        first = routeCells[2];
+        second = routeCells[3];
+        mover = benchmarkWorld.place(first);
+        atSecond = false;
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public boolean readOnly(Cursor cursor) {
+        return query(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public boolean reader(Cursor cursor) {
+        return query(cursor);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer() {
+        world.moveMonster(mover, atSecond ? first : second);
+        atSecond = !atSecond;
+    }
+
+    /* Queries the next position of the reader */
+    private boolean query(Cursor cursor) {
+        cursor.next = (cursor.next + 1) & (positions.length - 1);
+
+        return world.isPositionAvailable(positions[cursor.next]);
+    }
+}
@@ -0,0 +1,92 @@
+package pt.ua.towerdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the mutations of the world, with an increasing number of monsters in it.
+ * Each monster owns two consecutive cells of the route and moves back and forth between them,
+ * so that every move finds its destination free.
+ *
+ * @author Eduardo Sousa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovementBenchmark {
+    /* Number of monsters in the world */
+    @Param({"16", "256", "4096"})
+    private int monsters;
+
+    /* World state */
+    private WorldState world;
+
+    /* Handle of each monster */
+    private int[] handles;
+
+    /* First cell owned by each monster */
+    private int[] first;
+
+    /* Second cell owned by each monster */
+    private int[] second;
+
+    /* True for the monsters that are in their second cell */
+    private boolean[] atSecond;
+
+    /* Index of the monster that moves next */
+    private int next;
+
+    @Setup
+    public void setup() {
+        int columns = 128;
+        BenchmarkWorld benchmarkWorld = new BenchmarkWorld(columns, (2 * monsters + 2) / (columns - 2) + 2);
+
+        world = benchmarkWorld.getWorld();
+        handles = new int[monsters];
+        first = new int[monsters];
+        second = new int[monsters];
+        atSecond = new boolean[monsters];
+
+        int[] routeCells = benchmarkWorld.getRouteCells();
+
+        for(int i = 0; i < monsters; i++) {
+            first[i] = routeCells[2 + 2 * i];
+            second[i] = routeCells[3 + 2 * i];
+            handles[i] = benchmarkWorld.place(first[i]);
+        }
+
+        next = 0;
+    }
+
+    @Benchmark
+    public void moveMonster() {
+        int i = next;
+
+        world.moveMonster(handles[i], atSecond[i] ? first[i] : second[i]);
+        atSecond[i] = !atSecond[i];
+        next = i + 1 == monsters ? 0 : i + 1;
+    }
+
+    @Benchmark
+    public void addAndRemoveMonster() {
+        int handle = world.tryAddMonster(Direction.EAST, 1, 0);
+
+        world.removeMonster(handle);
+    }
+}
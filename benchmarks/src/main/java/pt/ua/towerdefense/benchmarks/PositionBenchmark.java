@@ -0,0 +1,93 @@
+package pt.ua.towerdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.ua.towerdefense.world.Position;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the hashing of positions and of the maps keyed by them, for square maps of several sizes.
+ * Lookups use copies of the stored keys, as the world state does.
+ *
+ * @author Eduardo Sousa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+    /* Number of columns and lines of the map */
+    @Param({"16", "64", "256"})
+    private int size;
+
+    /* Copies of the keys, in a shuffled order */
+    private Position[] lookups;
+
+    /* Map keyed by position */
+    private Map<Position, Integer> hashMap;
+
+    /* Concurrent map keyed by position */
+    private Map<Position, Integer> concurrentMap;
+
+    /* Index of the next lookup */
+    private int next;
+
+    @Setup
+    public void setup() {
+        hashMap = new HashMap<>();
+        concurrentMap = new ConcurrentHashMap<>();
+        lookups = new Position[size * size];
+
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++) {
+                hashMap.put(new Position(x, y), y * size + x);
+                concurrentMap.put(new Position(x, y), y * size + x);
+            }
+        }
+
+        // a multiplier coprime with the number of cells visits every cell once, in a scattered order
+        for(int i = 0; i < lookups.length; i++) {
+            int cell = (int) ((i * 40503L) % lookups.length);
+            lookups[i] = new Position(cell % size, cell / size);
+        }
+
+        next = 0;
+    }
+
+    @Benchmark
+    public int hashCodes() {
+        return nextLookup().hashCode();
+    }
+
+    @Benchmark
+    public Integer hashMapGet() {
+        return hashMap.get(nextLookup());
+    }
+
+    @Benchmark
+    public Integer concurrentMapGet() {
+        return concurrentMap.get(nextLookup());
+    }
+
+    /* Next position to look up */
+    private Position nextLookup() {
+        next = next + 1 == lookups.length ? 0 : next + 1;
+
+        return lookups[next];
+    }
+}
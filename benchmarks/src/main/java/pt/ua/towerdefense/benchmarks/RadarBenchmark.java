@@ -0,0 +1,94 @@
+package pt.ua.towerdefense.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.world.TowerCoverage;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the radar sweeps of a tower, at several radar ranges and numbers of monsters.
+ * The cells covered by the tower are filled first, so that the blocking sweep always finds
+ * a monster, and the remaining monsters are spread along the rest of the route.
+ *
+ * @author Eduardo Sousa
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadarBenchmark {
+    /* Radar range of the tower */
+    @Param({"1", "3", "7"})
+    private int radarRange;
+
+    /* Number of monsters in the world */
+    @Param({"1", "16", "256"})
+    private int monsters;
+
+    /* World state */
+    private WorldState world;
+
+    /* Tower that sweeps */
+    private Tower tower;
+
+    /* Buffer where the radar writes the monsters it finds */
+    private int[] hits;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld benchmarkWorld = new BenchmarkWorld(64, 32);
+
+        world = benchmarkWorld.getWorld();
+        tower = benchmarkWorld.addTower(radarRange, 1);
+        hits = new int[tower.getCoverage().getRadarSize()];
+
+        TowerCoverage coverage = tower.getCoverage();
+        int[] routeCells = benchmarkWorld.getRouteCells();
+        boolean[] occupied = new boolean[world.getNumberOfCells()];
+        int placed = 0;
+
+        for(int i = 0; i < coverage.getRadarSize() && placed < monsters; i++) {
+            int cell = coverage.getRadarCell(i);
+
+            if(cell != benchmarkWorld.getRoute().getBeginning()) {
+                benchmarkWorld.place(cell);
+                occupied[cell] = true;
+                placed++;
+            }
+        }
+
+        int stride = Math.max(1, (routeCells.length - 1) / Math.max(1, monsters - placed));
+
+        for(int i = 1; i < routeCells.length && placed < monsters; i += stride) {
+            if(!occupied[routeCells[i]]) {
+                benchmarkWorld.place(routeCells[i]);
+                occupied[routeCells[i]] = true;
+                placed++;
+            }
+        }
+    }
+
+    @Benchmark
+    public int getMonstersInRange() {
+        return world.getMonstersInRange(tower, hits, null);
+    }
+
+    @Benchmark
+    public int scanRadar() {
+        return world.scanRadar(tower, hits, null);
+    }
+}
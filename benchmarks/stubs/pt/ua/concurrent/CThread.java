@@ -0,0 +1,17 @@
+package pt.ua.concurrent;
+
+/**
+ * Stand-in for the thread class of the concurrent library, so that the benchmarks
+ * can be built without it. The benchmarks never start the entities.
+ *
+ * @author Eduardo Sousa
+ */
+public class CThread extends Thread {
+    public CThread() {
+        super();
+    }
+
+    public CThread(Runnable runnable) {
+        super(runnable);
+    }
+}
@@ -0,0 +1,28 @@
+package pt.ua.concurrent;
+
+/**
+ * Stand-in for the metronome of the concurrent library, so that the benchmarks
+ * can be built without it. Sleeps until the next multiple of the period.
+ *
+ * @author Eduardo Sousa
+ */
+public class Metronome {
+    /* Period in milliseconds */
+    private final long period;
+
+    public Metronome(long period) {
+        assert period > 0;
+
+        this.period = period;
+    }
+
+    public long sync() {
+        try {
+            Thread.sleep(period - System.currentTimeMillis() % period);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        return 0;
+    }
+}
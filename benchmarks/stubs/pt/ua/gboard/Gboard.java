@@ -0,0 +1,18 @@
+package pt.ua.gboard;
+
+/**
+ * Stand-in for the board of the gboard library, so that the benchmarks can be built
+ * without it. The benchmarks run headless, so nothing is ever drawn.
+ *
+ * @author Eduardo Sousa
+ */
+public class Gboard {
+    public void draw(Gelem gelem, int line, int column, int layer) {
+    }
+
+    public void erase(Gelem gelem, int line, int column) {
+    }
+
+    public void move(Gelem gelem, int line, int column, int newLine, int newColumn) {
+    }
+}
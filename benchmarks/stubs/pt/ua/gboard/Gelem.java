@@ -0,0 +1,9 @@
+package pt.ua.gboard;
+
+/**
+ * Stand-in for the graphical element of the gboard library.
+ *
+ * @author Eduardo Sousa
+ */
+public class Gelem {
+}
@@ -0,0 +1,11 @@
+package pt.ua.gboard;
+
+/**
+ * Stand-in for the image element of the gboard library.
+ *
+ * @author Eduardo Sousa
+ */
+public class ImageGelem extends Gelem {
+    public ImageGelem(String file, Gboard board, int percentage) {
+    }
+}
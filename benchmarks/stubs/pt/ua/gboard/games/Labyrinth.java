@@ -0,0 +1,19 @@
+package pt.ua.gboard.games;
+
+import pt.ua.gboard.Gboard;
+import pt.ua.gboard.Gelem;
+
+/**
+ * Stand-in for the labyrinth of the gboard library.
+ *
+ * @author Eduardo Sousa
+ */
+public class Labyrinth {
+    public final Gboard board = new Gboard();
+
+    public Labyrinth(String file, char[] roadSymbols, int layers) {
+    }
+
+    public void attachGelemToWallSymbol(char symbol, Gelem gelem) {
+    }
+}
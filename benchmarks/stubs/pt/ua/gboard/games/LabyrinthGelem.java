@@ -0,0 +1,11 @@
+package pt.ua.gboard.games;
+
+/**
+ * Stand-in for the labyrinth element of the gboard library.
+ *
+ * @author Eduardo Sousa
+ */
+public class LabyrinthGelem {
+    public static void setShowRoadBoundaries() {
+    }
+}
@@ -1,138 +1,607 @@
 package pt.ua.towerdefense;
 
+import pt.ua.concurrent.CThread;
 import pt.ua.concurrent.Metronome;
 import pt.ua.gboard.Gelem;
 import pt.ua.gboard.ImageGelem;
 import pt.ua.gboard.games.Labyrinth;
 import pt.ua.gboard.games.LabyrinthGelem;
+import pt.ua.towerdefense.batch.BatchRunner;
+import pt.ua.towerdefense.batch.GameResult;
+import pt.ua.towerdefense.batch.InvalidSweepException;
+import pt.ua.towerdefense.batch.Placement;
+import pt.ua.towerdefense.batch.PlacementOptimizer;
+import pt.ua.towerdefense.batch.SweepGrid;
 import pt.ua.towerdefense.definitions.ConfigurationValues;
 import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.definitions.EngineMode;
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+import pt.ua.towerdefense.engine.ParallelTickEngine;
+import pt.ua.towerdefense.engine.TickEngine;
+import pt.ua.towerdefense.monitoring.CompositeSimulationListener;
+import pt.ua.towerdefense.monitoring.JfrSimulationListener;
+import pt.ua.towerdefense.monitoring.SimulationListener;
 import pt.ua.towerdefense.monsters.Monster;
 import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.recording.Checkpoint;
+import pt.ua.towerdefense.recording.EventRecorder;
+import pt.ua.towerdefense.recording.EventReplayer;
+import pt.ua.towerdefense.rendering.GboardRenderer;
+import pt.ua.towerdefense.rendering.HeadlessRenderer;
+import pt.ua.towerdefense.rendering.Renderer;
+import pt.ua.towerdefense.timing.MetronomeTicker;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.timing.Ticker;
+import pt.ua.towerdefense.timing.VirtualClockTicker;
+import pt.ua.towerdefense.timing.WallClockTicker;
 import pt.ua.towerdefense.towers.Tower;
 import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.GameMap;
+import pt.ua.towerdefense.world.InvalidMapException;
+import pt.ua.towerdefense.world.MapLoader;
 import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.RegionGrid;
+import pt.ua.towerdefense.world.Route;
 import pt.ua.towerdefense.world.WorldState;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class TowerDefense {
     private static int numberOfMonsters;
-    private static Position begin;
-    private static Position end;
-    private static List<Position> towers = new ArrayList<>();
-    private static List<String> map = new ArrayList<>();
+    private static String mapFile;
+    private static boolean headless;
+    private static EngineMode engineMode = EngineMode.THREADS;
+    private static long tickMs = ConfigurationValues.TICK_MS;
+    private static boolean virtualClock;
+    private static int spawnWaveSize = ConfigurationValues.SPAWN_WAVE_SIZE;
+    private static long spawnWaveInterval = ConfigurationValues.SPAWN_WAVE_INTERVAL;
+    private static int regionRows;
+    private static int regionColumns;
+    private static TargetingPolicy targetingPolicy = ConfigurationValues.TOWER_TARGETING_POLICY;
+    private static String recordFile;
+    private static String replayFile;
+    private static String checkpointFile;
+    private static long checkpointInterval = ConfigurationValues.CHECKPOINT_INTERVAL;
+    private static String restoreFile;
+    private static String sweepFile;
+    private static int workers = Runtime.getRuntime().availableProcessors();
+    private static long seed;
+    private static int samples;
+    private static String outputFile;
+    private static int budget;
 
     public static void main(String[] args) throws InterruptedException {
-        if(args.length != 2) {
-            System.out.println("Required arguments: <number_of_monsters> <map_file>.");
+        List<String> arguments = new ArrayList<>();
+
+        for(String arg : args) {
+            if(arg.startsWith("--"))
+                processOption(arg);
+            else
+                arguments.add(arg);
+        }
+
+        // a replay or a restore only needs the map, since the monsters come from the log or the checkpoint
+        if(arguments.size() != (replayFile != null || restoreFile != null ? 1 : 2)) {
+            System.out.println("Required arguments: <number_of_monsters> <map_file> [--headless] " +
+                    "[--engine=threads|virtual-threads|tick|parallel-tick] [--clock=wall|virtual] [--tick-ms=<milliseconds>] " +
+                    "[--spawn-wave=<monsters>] [--spawn-interval=<ticks>] [--regions=<rows>x<columns>] " +
+                    "[--targeting=last|furthest|closest|lowest-health|highest-health] [--record=<log_file>] " +
+                    "[--checkpoint=<file>] [--checkpoint-every=<ticks>], or <map_file> --restore=<file> [options], " +
+                    "or <number_of_monsters> <map_file> --batch=<sweep_file> [--workers=<threads>] " +
+                    "[--samples=<games>] [--seed=<seed>] [--output=<csv_file>] [--spawn-wave=<monsters>] " +
+                    "[--spawn-interval=<ticks>], " +
+                    "or <number_of_monsters> <map_file> --optimize=<budget> [--workers=<threads>] " +
+                    "[--output=<map_file>] [--spawn-wave=<monsters>] [--spawn-interval=<ticks>], " +
+                    "or <map_file> --replay=<log_file> [--headless].");
             System.exit(-1);
         }
 
-        numberOfMonsters = Integer.decode(args[0]);
+        if(replayFile != null) {
+            // the replay is driven from this thread, like the tick engine
+            engineMode = EngineMode.TICK;
+            numberOfMonsters = 0;
+            mapFile = arguments.get(0);
+        } else if(restoreFile != null) {
+            mapFile = arguments.get(0);
+        } else {
+            numberOfMonsters = Integer.decode(arguments.get(0));
+            mapFile = arguments.get(1);
+        }
 
-        if(numberOfMonsters <= 0) {
+        if(numberOfMonsters <= 0 && replayFile == null && restoreFile == null) {
             System.out.println("You must pass a positive number of monsters.");
             System.exit(-1);
         }
 
-        Scanner sc = new Scanner(args[1]);
+        GameMap gameMap = null;
 
-        while (sc.hasNextLine()) {
-            map.add(sc.nextLine().toUpperCase());
+        try {
+            gameMap = MapLoader.load(Path.of(mapFile));
+        } catch (NoSuchFileException e) {
+            System.out.println("Map file " + mapFile + " not found.");
+            System.exit(-1);
+        } catch (IOException | InvalidMapException e) {
+            System.out.println(e.getMessage());
+            System.exit(-1);
         }
 
-        sc.close();
-
-        if(map.isEmpty()) {
-            System.out.println("Map must not be empty.");
+        if(checkpointFile != null && engineMode != EngineMode.TICK && engineMode != EngineMode.PARALLEL_TICK) {
+            System.out.println("Checkpoints can only be saved by the tick and parallel-tick engines.");
             System.exit(-1);
         }
 
-        processMap();
+        Checkpoint checkpoint = restoreFile != null ? readCheckpoint() : null;
+
+        if(checkpoint != null)
+            numberOfMonsters = checkpoint.getNumberOfMonsters();
 
-        if(begin == null || end == null) {
-            System.out.println("One begin and end cell must be defined in the map.");
+        Ticker ticker = initializeTicker();
+        WorldState state = initializeWorldState(gameMap, ticker);
+        state.getStats().register();
+        Route route = new Route(state, Direction.EAST);
+
+        if(!route.reachesEnd()) {
+            System.out.println("The end cell must be reachable from the begin cell.");
             System.exit(-1);
         }
 
-        WorldState state = initializeWorldState();
+        if(sweepFile != null)
+            runBatch(gameMap);
+
+        if(budget > 0)
+            runOptimizer(gameMap);
+
         MonsterAttributes monsterAttributes = initializeMonsterAttributes();
         TowerAttributes towerAttributes = initializeTowerAttributes();
-        Metronome metronome = initializeMetronome();
 
-        for(Position pos : towers) {
-            Tower tower = new Tower(state, metronome, pos, towerAttributes);
-            tower.start();
+        List<Tower> towerList = new ArrayList<>();
+        List<Monster> monsterList = new ArrayList<>();
+        SpawnScheduler spawner = new SpawnScheduler(ticker, spawnWaveSize, spawnWaveInterval);
+
+        for(Position pos : gameMap.getTowers())
+            towerList.add(new Tower(state, ticker, pos, towerAttributes, route));
+
+        if(replayFile != null) {
+            towerList.forEach(state::addTower);
+            replay(state, (StepTicker) ticker);
         }
 
-        for(int i = 0; i < numberOfMonsters; i++) {
-            Monster monster = new Monster(monsterAttributes, state, metronome, state.getPathBeginning(), Direction.EAST);
-            monster.start();
+        for(int i = 0; i < numberOfMonsters; i++)
+            monsterList.add(new Monster(monsterAttributes, state, ticker, route, spawner));
+
+        monsterList.forEach(spawner::enqueue);
+
+        if(checkpoint != null) {
+            try {
+                checkpoint.restore(state, route, ticker, monsterList, spawner, towerList);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+                System.exit(-1);
+            }
         }
 
-    }
+        switch (engineMode) {
+            case THREADS:
+                List<Thread> towerThreads = new ArrayList<>();
+                List<Thread> monsterThreads = new ArrayList<>();
+
+                for(Tower tower : towerList) {
+                    if(tower.hasCoverage())
+                        towerThreads.add(new CThread(tower));
+                    else
+                        state.addTower(tower);
+                }
+
+                for(Monster monster : monsterList)
+                    monsterThreads.add(new CThread(monster));
 
-    private static void processMap() {
-        List<String> processedMap = new ArrayList<>();
-
-        for(int y = 0; y < map.size(); y++) {
-            StringBuilder builder = new StringBuilder();
-
-            for(int x = 0; x < map.get(y).length(); x++) {
-                switch (map.get(y).charAt(x)) {
-                    case 'B':
-                        if(begin != null) {
-                            System.out.println("Map must only contain one begin cell.");
-                            System.exit(-1);
-                        } else {
-                            begin = new Position(x, y);
-                        }
-                        builder.append('X');
-                        break;
-                    case 'E':
-                        if(end != null) {
-                            System.out.println("Map must only contain one end cell.");
-                            System.exit(-1);
-                        } else {
-                            end = new Position(x, y);
-                        }
-                        builder.append('X');
-                        break;
-                    case 'T':
-                        towers.add(new Position(x, y));
-                        builder.append('#');
-                        break;
-                    case 'X':
-                        builder.append('X');
-                        break;
-                    case '#':
-                        builder.append('#');
-                        break;
-                    default:
-                        System.out.println("Unrecognized symbol in map definition. Allowed symbols: B, E, T, X, #.");
-                        System.exit(-1);
+                towerThreads.forEach(Thread::start);
+                monsterThreads.forEach(Thread::start);
+
+                for(Thread monster : monsterThreads)
+                    monster.join();
+
+                endGame(towerList, towerThreads, monsterList, checkpoint);
+                break;
+            case VIRTUAL_THREADS:
+                List<Thread> virtualTowers = new ArrayList<>();
+                List<Thread> virtualMonsters = new ArrayList<>();
+
+                for(Tower tower : towerList) {
+                    if(tower.hasCoverage())
+                        virtualTowers.add(Thread.ofVirtual().name("tower-" + tower.getId()).start(tower));
+                    else
+                        state.addTower(tower);
                 }
+
+                for(Monster monster : monsterList)
+                    virtualMonsters.add(Thread.ofVirtual().name("monster-" + monster.getId()).start(monster));
+
+                for(Thread monster : virtualMonsters)
+                    monster.join();
+
+                endGame(towerList, virtualTowers, monsterList, checkpoint);
+                break;
+            case PARALLEL_TICK:
+                ParallelTickEngine parallelEngine = new ParallelTickEngine(state, towerList, monsterList,
+                        (StepTicker) ticker, tickMs, ForkJoinPool.commonPool());
+
+                if(checkpoint != null)
+                    parallelEngine.restoreOutcome(checkpoint.getKills(), checkpoint.getLeaks());
+
+                if(checkpointFile != null)
+                    parallelEngine.setCheckpoints(Path.of(checkpointFile), checkpointInterval, spawner);
+
+                long parallelTicks = parallelEngine.run();
+
+                System.out.println("Game over after " + parallelTicks + " ticks: " + parallelEngine.getKills() +
+                        " monsters died, " + parallelEngine.getLeaks() + " reached the end of the map.");
+                System.exit(0);
+                break;
+            case TICK:
+                TickEngine engine = new TickEngine(state, towerList, monsterList, (StepTicker) ticker, tickMs);
+
+                if(checkpoint != null)
+                    engine.restoreOutcome(checkpoint.getKills(), checkpoint.getLeaks());
+
+                if(checkpointFile != null)
+                    engine.setCheckpoints(Path.of(checkpointFile), checkpointInterval, spawner);
+
+                long ticks = engine.run();
+
+                System.out.println("Game over after " + ticks + " ticks: " + engine.getKills() + " monsters died, " +
+                        engine.getLeaks() + " reached the end of the map.");
+                System.exit(0);
+                break;
+        }
+    }
+
+    private static void runBatch(GameMap gameMap) {
+        SweepGrid grid = null;
+
+        try {
+            grid = SweepGrid.load(Path.of(sweepFile));
+        } catch (NoSuchFileException e) {
+            System.out.println("Sweep file " + sweepFile + " not found.");
+            System.exit(-1);
+        } catch (IOException | InvalidSweepException e) {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+
+        int[] points = samples > 0 ? BatchRunner.sample(grid.size(), Math.min(samples, grid.size()), seed) :
+                IntStream.range(0, grid.size()).toArray();
+        BatchRunner runner = new BatchRunner(gameMap, grid, numberOfMonsters, spawnWaveSize, spawnWaveInterval);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long start = System.currentTimeMillis();
+        List<GameResult> results = runner.run(points, pool);
+        long elapsed = System.currentTimeMillis() - start;
+
+        pool.shutdown();
+
+        if(outputFile == null) {
+            BatchRunner.writeResults(System.out, grid, results);
+        } else {
+            try (PrintStream out = new PrintStream(outputFile)) {
+                BatchRunner.writeResults(out, grid, results);
+            } catch (IOException e) {
+                System.out.println("Results file " + outputFile + " cannot be written: " + e.getMessage());
+                System.exit(-1);
+            }
+        }
+
+        System.out.println("Played " + results.size() + " games in " + elapsed + " ms on " + workers + " workers.");
+        BatchRunner.writeSummary(System.out, results);
+        System.exit(0);
+    }
+
+    private static void runOptimizer(GameMap gameMap) {
+        TowerAttributes towerAttributes = initializeTowerAttributes();
+        PlacementOptimizer optimizer = new PlacementOptimizer(gameMap, initializeMonsterAttributes(), towerAttributes,
+                numberOfMonsters, spawnWaveSize, spawnWaveInterval);
+
+        if(optimizer.getNumberOfTowers(budget) == 0) {
+            System.out.println("The budget must pay for at least one tower, that costs " +
+                    towerAttributes.getBuildCost() + ", and the map must have a place for it next to the path.");
+            System.exit(-1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long start = System.currentTimeMillis();
+        Placement placement = optimizer.optimize(budget, ConfigurationValues.PLACEMENT_CANDIDATES,
+                ConfigurationValues.PLACEMENT_ROUNDS, pool);
+        long elapsed = System.currentTimeMillis() - start;
+
+        pool.shutdown();
+
+        if(outputFile != null) {
+            try (PrintStream out = new PrintStream(outputFile)) {
+                optimizer.writeMap(out, placement);
+            } catch (IOException e) {
+                System.out.println("Map file " + outputFile + " cannot be written: " + e.getMessage());
+                System.exit(-1);
+            }
+        }
+
+        System.out.println("Searched " + optimizer.getScores().size() + " sites in " + elapsed + " ms on " + workers +
+                " workers: " + optimizer.getGamesPlayed() + " games played, " + optimizer.getGamesAbandoned() +
+                " abandoned.");
+
+        StringBuilder towers = new StringBuilder();
+
+        for(Position tower : placement.getTowers())
+            towers.append(towers.length() == 0 ? "" : ", ").append('(').append(tower.getCoordinateX()).append(", ")
+                    .append(tower.getCoordinateY()).append(')');
+
+        System.out.println("Towers: " + towers + ".");
+        System.out.println("Best placement after " + placement.getTicks() + " ticks: " + placement.getKills() +
+                " monsters died, " + placement.getLeaks() + " reached the end of the map.");
+        System.exit(0);
+    }
+
+    private static void endGame(List<Tower> towers, List<Thread> towerThreads, List<Monster> monsters,
+                                Checkpoint checkpoint) throws InterruptedException {
+        // the game is over once every monster left the world, and the towers would otherwise wait forever
+        towers.forEach(Tower::shutdown);
+
+        for(Thread tower : towerThreads)
+            tower.join();
+
+        int leaks = (int) monsters.stream().filter(Monster::hasReachedEnd).count();
+        int kills = monsters.size() - leaks;
+
+        // the monsters that left the world before the checkpoint was saved are not among the restored ones
+        if(checkpoint != null) {
+            kills += checkpoint.getKills();
+            leaks += checkpoint.getLeaks();
+        }
+
+        System.out.println("Game over: " + kills + " monsters died, " + leaks + " reached the end of the map.");
+        System.exit(0);
+    }
+
+    private static void replay(WorldState state, StepTicker ticker) {
+        EventReplayer replayer = new EventReplayer(state, Direction.EAST, ticker);
+
+        try {
+            long events = replayer.replay(Path.of(replayFile));
+
+            System.out.println("Replayed " + events + " events up to tick " + ticker.getTick() + ": " +
+                    replayer.getKills() + " monsters died, " + replayer.getLeaks() + " reached the end of the map.");
+            System.exit(0);
+        } catch (NoSuchFileException e) {
+            System.out.println("Event log " + replayFile + " not found.");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+
+        System.exit(-1);
+    }
+
+    private static Checkpoint readCheckpoint() {
+        try {
+            return Checkpoint.read(Path.of(restoreFile));
+        } catch (NoSuchFileException e) {
+            System.out.println("Checkpoint " + restoreFile + " not found.");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+
+        System.exit(-1);
+        return null;
+    }
+
+    private static void processOption(String option) {
+        if(option.equals("--headless")) {
+            headless = true;
+        } else if(option.equals("--engine=threads")) {
+            engineMode = EngineMode.THREADS;
+        } else if(option.equals("--engine=virtual-threads")) {
+            engineMode = EngineMode.VIRTUAL_THREADS;
+        } else if(option.equals("--engine=tick")) {
+            engineMode = EngineMode.TICK;
+        } else if(option.equals("--engine=parallel-tick")) {
+            engineMode = EngineMode.PARALLEL_TICK;
+        } else if(option.equals("--clock=wall")) {
+            virtualClock = false;
+        } else if(option.equals("--clock=virtual")) {
+            virtualClock = true;
+        } else if(option.startsWith("--tick-ms=")) {
+            try {
+                tickMs = Long.parseLong(option.substring("--tick-ms=".length()));
+            } catch (NumberFormatException e) {
+                tickMs = -1;
+            }
+
+            if(tickMs < 0) {
+                System.out.println("The tick duration must be a non negative number of milliseconds.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--spawn-wave=")) {
+            try {
+                spawnWaveSize = Integer.parseInt(option.substring("--spawn-wave=".length()));
+            } catch (NumberFormatException e) {
+                spawnWaveSize = -1;
+            }
+
+            if(spawnWaveSize <= 0) {
+                System.out.println("The spawn wave size must be a positive number of monsters.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--spawn-interval=")) {
+            try {
+                spawnWaveInterval = Long.parseLong(option.substring("--spawn-interval=".length()));
+            } catch (NumberFormatException e) {
+                spawnWaveInterval = -1;
+            }
+
+            if(spawnWaveInterval < 0) {
+                System.out.println("The spawn interval must be a non negative number of ticks.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--regions=")) {
+            String[] grid = option.substring("--regions=".length()).split("x");
+
+            try {
+                regionRows = grid.length == 2 ? Integer.parseInt(grid[0]) : -1;
+                regionColumns = grid.length == 2 ? Integer.parseInt(grid[1]) : -1;
+            } catch (NumberFormatException e) {
+                regionRows = -1;
+            }
+
+            if(regionRows <= 0 || regionColumns <= 0) {
+                System.out.println("The regions must be a positive number of rows and columns, such as 4x2.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--targeting=")) {
+            try {
+                targetingPolicy = TargetingPolicy.valueOf(option.substring("--targeting=".length())
+                        .toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                System.out.println("The targeting policy must be last, furthest, closest, lowest-health or " +
+                        "highest-health.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--record=") && option.length() > "--record=".length()) {
+            recordFile = option.substring("--record=".length());
+        } else if(option.startsWith("--replay=") && option.length() > "--replay=".length()) {
+            replayFile = option.substring("--replay=".length());
+        } else if(option.startsWith("--checkpoint=") && option.length() > "--checkpoint=".length()) {
+            checkpointFile = option.substring("--checkpoint=".length());
+        } else if(option.startsWith("--checkpoint-every=")) {
+            try {
+                checkpointInterval = Long.parseLong(option.substring("--checkpoint-every=".length()));
+            } catch (NumberFormatException e) {
+                checkpointInterval = -1;
             }
 
-            processedMap.add(builder.toString());
+            if(checkpointInterval <= 0) {
+                System.out.println("The checkpoint interval must be a positive number of ticks.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--restore=") && option.length() > "--restore=".length()) {
+            restoreFile = option.substring("--restore=".length());
+        } else if(option.startsWith("--batch=") && option.length() > "--batch=".length()) {
+            // batches are always played headless, by tick engines
+            sweepFile = option.substring("--batch=".length());
+            headless = true;
+            engineMode = EngineMode.TICK;
+        } else if(option.startsWith("--workers=")) {
+            try {
+                workers = Integer.parseInt(option.substring("--workers=".length()));
+            } catch (NumberFormatException e) {
+                workers = -1;
+            }
+
+            if(workers <= 0) {
+                System.out.println("The number of workers must be a positive number of threads.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--samples=")) {
+            try {
+                samples = Integer.parseInt(option.substring("--samples=".length()));
+            } catch (NumberFormatException e) {
+                samples = -1;
+            }
+
+            if(samples <= 0) {
+                System.out.println("The number of samples must be a positive number of games.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--seed=")) {
+            try {
+                seed = Long.parseLong(option.substring("--seed=".length()));
+            } catch (NumberFormatException e) {
+                System.out.println("The seed must be an integer.");
+                System.exit(-1);
+            }
+        } else if(option.startsWith("--optimize=")) {
+            // placements are always played headless, by tick engines
+            try {
+                budget = Integer.parseInt(option.substring("--optimize=".length()));
+            } catch (NumberFormatException e) {
+                budget = -1;
+            }
+
+            if(budget <= 0) {
+                System.out.println("The budget must be a positive amount.");
+                System.exit(-1);
+            }
+
+            headless = true;
+            engineMode = EngineMode.TICK;
+        } else if(option.startsWith("--output=") && option.length() > "--output=".length()) {
+            outputFile = option.substring("--output=".length());
+        } else {
+            System.out.println("Unrecognized option: " + option + ". Allowed options: --headless, " +
+                    "--engine=threads|virtual-threads|tick|parallel-tick, --clock=wall|virtual, " +
+                    "--tick-ms=<milliseconds>, --spawn-wave=<monsters>, --spawn-interval=<ticks>, " +
+                    "--regions=<rows>x<columns>, --targeting=last|furthest|closest|lowest-health|highest-health, " +
+                    "--record=<log_file>, --replay=<log_file>, --checkpoint=<file>, --checkpoint-every=<ticks>, " +
+                    "--restore=<file>, --batch=<sweep_file>, --workers=<threads>, --samples=<games>, --seed=<seed>, " +
+                    "--output=<file>, --optimize=<budget>.");
+            System.exit(-1);
+        }
+    }
+
+    private static WorldState initializeWorldState(GameMap gameMap, Ticker ticker) {
+        // by default, the parallel engine splits the map in one row of regions per processor
+        if(regionRows == 0) {
+            regionRows = engineMode == EngineMode.PARALLEL_TICK ? Runtime.getRuntime().availableProcessors() : 1;
+            regionColumns = 1;
         }
 
-        map = processedMap;
+        RegionGrid regions = new RegionGrid(gameMap.getNumberOfColumns(), gameMap.getNumberOfLines(), regionRows,
+                regionColumns);
+
+        // a replay does not know how many monsters it holds, but no more than one per path cell
+        int capacity = replayFile != null ? gameMap.getPathCells() :
+                Math.min(numberOfMonsters, gameMap.getPathCells());
+
+        return new WorldState(gameMap, regions, capacity, initializeRenderer(), initializeListener(gameMap, ticker));
     }
 
-    private static WorldState initializeWorldState() {
+    private static SimulationListener initializeListener(GameMap gameMap, Ticker ticker) {
+        SimulationListener jfr = new JfrSimulationListener(ticker);
+
+        if(recordFile == null)
+            return jfr;
+
+        try {
+            EventRecorder recorder = new EventRecorder(Path.of(recordFile), ticker, gameMap.getNumberOfColumns(),
+                    gameMap.getNumberOfLines());
+
+            // cuts the log after its last record however the game ends
+            Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+
+            return new CompositeSimulationListener(List.of(jfr, recorder));
+        } catch (IOException e) {
+            System.out.println("Event log " + recordFile + " cannot be written: " + e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    private static Renderer initializeRenderer() {
+        if(headless)
+            return new HeadlessRenderer();
+
         LabyrinthGelem.setShowRoadBoundaries();
-        Labyrinth maze = new Labyrinth("map.txt", new char[] {'X'}, 1);
+        Labyrinth maze = new Labyrinth(mapFile, new char[] {'X'}, 1);
         Gelem wall = new ImageGelem("textures/wall.png", maze.board, 100);
         maze.attachGelemToWallSymbol('#', wall);
         Gelem monster = new ImageGelem("textures/monster.png", maze.board, 100);
         Gelem tower = new ImageGelem("textures/tower.png", maze.board, 100);
 
-        return new WorldState(maze, new Position(0, 1), new Position(9, 8),
-                monster, tower);
+        return new GboardRenderer(maze, monster, tower);
     }
 
     private static MonsterAttributes initializeMonsterAttributes() {
@@ -144,10 +613,21 @@ public class TowerDefense {
         return new TowerAttributes(ConfigurationValues.TOWER_POTENTIAL_DAMAGE, ConfigurationValues.TOWER_BUILD_COST,
                 ConfigurationValues.TOWER_ROTATION_CYCLES, ConfigurationValues.TOWER_SHOOT_CYCLES,
                 ConfigurationValues.TOWER_COOLDOWN_CYCLES, ConfigurationValues.TOWER_SHOT_RANGE,
-                ConfigurationValues.TOWER_RADAR_RANGE, ConfigurationValues.TOWER_RADAR_CYCLES);
+                ConfigurationValues.TOWER_RADAR_RANGE, ConfigurationValues.TOWER_RADAR_CYCLES, targetingPolicy);
     }
 
-    private static Metronome initializeMetronome() {
-        return new Metronome(ConfigurationValues.TICK_MS);
+    private static Ticker initializeTicker() {
+        if(engineMode == EngineMode.TICK || engineMode == EngineMode.PARALLEL_TICK)
+            return new StepTicker();
+
+        if(virtualClock)
+            return new VirtualClockTicker();
+
+        long period = tickMs > 0 ? tickMs : ConfigurationValues.TICK_MS;
+
+        if(engineMode == EngineMode.VIRTUAL_THREADS)
+            return new WallClockTicker(period);
+
+        return new MetronomeTicker(new Metronome(period), period);
     }
 }
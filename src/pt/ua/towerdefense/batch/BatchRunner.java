@@ -0,0 +1,222 @@
+package pt.ua.towerdefense.batch;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.engine.TickEngine;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.rendering.HeadlessRenderer;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.GameMap;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.RegionGrid;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class that plays many independent games on the same map, one for each point of a sweep grid.
+ * Each game is played headless by its own tick engine, from the thread of a worker pool, until
+ * every monster died or reached the end of the path. No entity is ever started, so the game is
+ * over as soon as its engine finishes, and there are no towers left running. The games share
+ * nothing but the map and the route followed on it, which are never changed, so they run in
+ * parallel without any locking, and the outcome of each one does not depend on how many run at
+ * the same time.
+ *
+ * @author Eduardo Sousa
+ */
+public class BatchRunner {
+    /* Map where the games are played */
+    private final GameMap map;
+
+    /* Attributes of the monsters and towers of each game */
+    private final SweepGrid grid;
+
+    /* Number of monsters of each game */
+    private final int numberOfMonsters;
+
+    /* Maximum number of monsters of each spawn wave */
+    private final int spawnWaveSize;
+
+    /* Number of ticks from the start of a spawn wave to the start of the next */
+    private final long spawnWaveInterval;
+
+    /* Route followed by the monsters, the same in every game on the map */
+    private final Route route;
+
+    /**
+     * Constructor for the batch runner.
+     *
+     * @param map map where the games are played, whose end is reachable from its beginning.
+     * @param grid attributes of the monsters and towers of each game.
+     * @param numberOfMonsters number of monsters of each game.
+     * @param spawnWaveSize maximum number of monsters of each spawn wave.
+     * @param spawnWaveInterval number of ticks from the start of a spawn wave to the start of the next.
+     */
+    public BatchRunner(GameMap map, SweepGrid grid, int numberOfMonsters, int spawnWaveSize, long spawnWaveInterval) {
+        assert map != null;
+        assert grid != null;
+        assert numberOfMonsters > 0;
+        assert spawnWaveSize > 0;
+        assert spawnWaveInterval >= 0;
+
+        this.map = map;
+        this.grid = grid;
+        this.numberOfMonsters = numberOfMonsters;
+        this.spawnWaveSize = spawnWaveSize;
+        this.spawnWaveInterval = spawnWaveInterval;
+        this.route = new Route(newWorld(), Direction.EAST);
+
+        assert route.reachesEnd();
+    }
+
+    /**
+     * Plays the games of some points of the grid on a worker pool.
+     *
+     * @param points indices of the points of the grid.
+     * @param pool pool where the games are played, whose parallelism bounds the games played at a time.
+     *
+     * @return the result of each game, in the order of the points.
+     */
+    public List<GameResult> run(int[] points, ForkJoinPool pool) {
+        assert points != null;
+        assert pool != null;
+
+        return pool.submit(() -> Arrays.stream(points).parallel().mapToObj(this::play).toList()).join();
+    }
+
+    /**
+     * Plays the game of a point of the grid, from the calling thread.
+     *
+     * @param point index of the point.
+     *
+     * @return the result of the game.
+     */
+    public GameResult play(int point) {
+        assert point >= 0 && point < grid.size();
+
+        StepTicker ticker = new StepTicker();
+        WorldState world = newWorld();
+        MonsterAttributes monsterAttributes = grid.getMonsterAttributes(point);
+        TowerAttributes towerAttributes = grid.getTowerAttributes(point);
+        SpawnScheduler spawner = new SpawnScheduler(ticker, spawnWaveSize, spawnWaveInterval);
+        List<Tower> towers = new ArrayList<>();
+        List<Monster> monsters = new ArrayList<>();
+
+        for(Position position : map.getTowers())
+            towers.add(new Tower(world, ticker, position, towerAttributes, route));
+
+        for(int i = 0; i < numberOfMonsters; i++)
+            monsters.add(new Monster(monsterAttributes, world, ticker, route, spawner));
+
+        monsters.forEach(spawner::enqueue);
+
+        TickEngine engine = new TickEngine(world, towers, monsters, ticker, 0);
+
+        while (!engine.isFinished())
+            engine.step();
+
+        return new GameResult(point, engine.getKills(), engine.getLeaks(), engine.getTick());
+    }
+
+    /* Headless world on the map, with no towers yet */
+    private WorldState newWorld() {
+        RegionGrid regions = new RegionGrid(map.getNumberOfColumns(), map.getNumberOfLines(), 1, 1);
+
+        return new WorldState(map, regions, Math.min(numberOfMonsters, map.getPathCells()), new HeadlessRenderer(),
+                SimulationListener.NONE);
+    }
+
+    /**
+     * Chooses distinct points of a grid at random, all of them equally likely.
+     *
+     * @param size number of points of the grid.
+     * @param samples number of points to choose, at most the size of the grid.
+     * @param seed seed of the random choice, the same seed always choosing the same points.
+     *
+     * @return the indices of the chosen points, in ascending order.
+     */
+    public static int[] sample(int size, int samples, long seed) {
+        assert size > 0;
+        assert samples >= 0 && samples <= size;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<Integer> chosen = new HashSet<>();
+
+        // Floyd's algorithm, that draws one number per sample however large the grid is
+        for(int j = size - samples; j < size; j++) {
+            int candidate = random.nextInt(j + 1);
+
+            chosen.add(chosen.contains(candidate) ? j : candidate);
+        }
+
+        return chosen.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Writes the results of the games as comma separated values, one line per game, after a header.
+     * The columns are the parameters of the grid, followed by the kills, the leaks and the ticks to clear the map.
+     *
+     * @param out stream where the results are written.
+     * @param grid grid the games were played with.
+     * @param results results of the games.
+     */
+    public static void writeResults(PrintStream out, SweepGrid grid, List<GameResult> results) {
+        assert out != null;
+        assert grid != null;
+        assert results != null;
+
+        out.println(String.join(",", SweepGrid.PARAMETERS) + ",kills,leaks,ticks");
+
+        for(GameResult result : results) {
+            StringBuilder line = new StringBuilder();
+
+            for(int parameter = 0; parameter < SweepGrid.PARAMETERS.size(); parameter++)
+                line.append(grid.getValue(result.getPoint(), parameter)).append(',');
+
+            out.println(line.append(result.getKills()).append(',').append(result.getLeaks()).append(',')
+                    .append(result.getTicks()));
+        }
+    }
+
+    /**
+     * Writes the minimum, mean and maximum kills, leaks and ticks to clear the map over every game.
+     *
+     * @param out stream where the summary is written.
+     * @param results results of the games, at least one.
+     */
+    public static void writeSummary(PrintStream out, List<GameResult> results) {
+        assert out != null;
+        assert results != null && !results.isEmpty();
+
+        out.println("Kills: " + summary(results.stream().mapToLong(GameResult::getKills).toArray()));
+        out.println("Leaks: " + summary(results.stream().mapToLong(GameResult::getLeaks).toArray()));
+        out.println("Ticks to clear: " + summary(results.stream().mapToLong(GameResult::getTicks).toArray()));
+    }
+
+    /* Minimum, mean and maximum of some values */
+    private static String summary(long[] values) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        double sum = 0;
+
+        for(long value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        return String.format("min %d, mean %.2f, max %d", min, sum / values.length, max);
+    }
+}
@@ -0,0 +1,77 @@
+package pt.ua.towerdefense.batch;
+
+/**
+ * Class that holds the outcome of one game of a batch.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class GameResult {
+    /* Point of the sweep grid the game was played with */
+    private final int point;
+
+    /* Number of monsters that died */
+    private final int kills;
+
+    /* Number of monsters that reached the end of the path */
+    private final int leaks;
+
+    /* Number of ticks until every monster left the world */
+    private final long ticks;
+
+    /**
+     * Constructor for the game result.
+     *
+     * @param point point of the sweep grid the game was played with.
+     * @param kills number of monsters that died.
+     * @param leaks number of monsters that reached the end of the path.
+     * @param ticks number of ticks until every monster left the world.
+     */
+    public GameResult(int point, int kills, int leaks, long ticks) {
+        assert point >= 0;
+        assert kills >= 0;
+        assert leaks >= 0;
+        assert ticks >= 0;
+
+        this.point = point;
+        this.kills = kills;
+        this.leaks = leaks;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Getter for the point of the sweep grid the game was played with.
+     *
+     * @return the index of the point.
+     */
+    public int getPoint() {
+        return point;
+    }
+
+    /**
+     * Getter for the number of monsters that died.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        return kills;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Getter for the number of ticks until every monster left the world.
+     *
+     * @return a non negative number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,21 @@
+package pt.ua.towerdefense.batch;
+
+/**
+ * Exception thrown when a sweep file does not describe a valid grid of attributes.
+ * The message explains what is wrong, and is meant to be shown to the user.
+ *
+ * @author Eduardo Sousa
+ */
+public class InvalidSweepException extends Exception {
+    /* Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the exception.
+     *
+     * @param message explanation of what is wrong with the sweep.
+     */
+    public InvalidSweepException(String message) {
+        super(message);
+    }
+}
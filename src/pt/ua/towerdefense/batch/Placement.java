@@ -0,0 +1,81 @@
+package pt.ua.towerdefense.batch;
+
+import pt.ua.towerdefense.world.Position;
+
+import java.util.List;
+
+/**
+ * Class that holds a placement of towers and the outcome of the game played with it.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class Placement {
+    /* Positions of the towers, in row-major order */
+    private final List<Position> towers;
+
+    /* Number of monsters that died */
+    private final int kills;
+
+    /* Number of monsters that reached the end of the path */
+    private final int leaks;
+
+    /* Number of ticks until every monster left the world */
+    private final long ticks;
+
+    /**
+     * Constructor for the placement.
+     *
+     * @param towers positions of the towers, in row-major order.
+     * @param kills number of monsters that died.
+     * @param leaks number of monsters that reached the end of the path.
+     * @param ticks number of ticks until every monster left the world.
+     */
+    public Placement(List<Position> towers, int kills, int leaks, long ticks) {
+        assert towers != null;
+        assert kills >= 0;
+        assert leaks >= 0;
+        assert ticks >= 0;
+
+        this.towers = List.copyOf(towers);
+        this.kills = kills;
+        this.leaks = leaks;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Getter for the positions of the towers.
+     *
+     * @return an unmodifiable list of positions, in row-major order.
+     */
+    public List<Position> getTowers() {
+        return towers;
+    }
+
+    /**
+     * Getter for the number of monsters that died.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        return kills;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Getter for the number of ticks until every monster left the world.
+     *
+     * @return a non negative number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
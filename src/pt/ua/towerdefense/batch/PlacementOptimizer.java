@@ -0,0 +1,309 @@
+package pt.ua.towerdefense.batch;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.engine.TickEngine;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.rendering.HeadlessRenderer;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.GameMap;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.RegionGrid;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Class that searches for the placement of towers that kills the most monsters of a game.
+ * Every cell off the path may hold a tower, and the budget pays for as many towers as it
+ * covers their build cost. The search starts from the sites with the highest exposure and
+ * then, in rounds, tries moving each tower to one of the best ranked sites left empty, playing
+ * every such placement headless, in parallel, on a worker pool. The placement with the most
+ * kills, then the fewest ticks, is kept if it kills more than the current one, and the search
+ * stops when no move does. A game is abandoned as soon as too many monsters reached the end of
+ * the path for it to kill as many as the best placement known in the round, so the hopeless
+ * placements cost only part of a game. Placements that tie the best are always played to the
+ * end, so the chosen placement does not depend on the order the games finish.<br>
+ * The map, the route and the site scores, with the coverage of a tower on each site, are shared by
+ * every game, and never changed. Each worker plays its games on a world of its own, cleared before
+ * each game, so that no game allocates a world the size of the map.
+ *
+ * @author Eduardo Sousa
+ */
+public class PlacementOptimizer {
+    /* Map where the games are played, whose own towers are ignored */
+    private final GameMap map;
+
+    /* Attributes of the monsters */
+    private final MonsterAttributes monsterAttributes;
+
+    /* Attributes of the towers */
+    private final TowerAttributes towerAttributes;
+
+    /* Number of monsters of each game */
+    private final int numberOfMonsters;
+
+    /* Maximum number of monsters of each spawn wave */
+    private final int spawnWaveSize;
+
+    /* Number of ticks from the start of a spawn wave to the start of the next */
+    private final long spawnWaveInterval;
+
+    /* Route followed by the monsters, the same in every game on the map */
+    private final Route route;
+
+    /* Scores of the sites where a tower can shoot at the route */
+    private final SiteScores scores;
+
+    /* World where each thread plays its games */
+    private final ThreadLocal<WorldState> worlds;
+
+    /* Number of games played to the end */
+    private final AtomicLong gamesPlayed;
+
+    /* Number of games abandoned because they could not beat the best placement */
+    private final AtomicLong gamesAbandoned;
+
+    /**
+     * Constructor for the placement optimizer, that scores the sites of the map.
+     *
+     * @param map map where the games are played, whose end is reachable from its beginning.
+     * @param monsterAttributes attributes of the monsters.
+     * @param towerAttributes attributes of the towers.
+     * @param numberOfMonsters number of monsters of each game.
+     * @param spawnWaveSize maximum number of monsters of each spawn wave.
+     * @param spawnWaveInterval number of ticks from the start of a spawn wave to the start of the next.
+     */
+    public PlacementOptimizer(GameMap map, MonsterAttributes monsterAttributes, TowerAttributes towerAttributes,
+                              int numberOfMonsters, int spawnWaveSize, long spawnWaveInterval) {
+        assert map != null;
+        assert monsterAttributes != null;
+        assert towerAttributes != null;
+        assert numberOfMonsters > 0;
+        assert spawnWaveSize > 0;
+        assert spawnWaveInterval >= 0;
+
+        this.map = map;
+        this.monsterAttributes = monsterAttributes;
+        this.towerAttributes = towerAttributes;
+        this.numberOfMonsters = numberOfMonsters;
+        this.spawnWaveSize = spawnWaveSize;
+        this.spawnWaveInterval = spawnWaveInterval;
+        this.gamesPlayed = new AtomicLong();
+        this.gamesAbandoned = new AtomicLong();
+
+        WorldState world = newWorld();
+
+        this.route = new Route(world, Direction.EAST);
+
+        assert route.reachesEnd();
+
+        this.scores = new SiteScores(world, route, towerAttributes, monsterAttributes);
+        this.worlds = ThreadLocal.withInitial(this::newWorld);
+    }
+
+    /**
+     * Getter for the number of towers a budget pays for.
+     *
+     * @param budget amount available to build towers.
+     *
+     * @return the number of towers, at most the number of sites.
+     */
+    public int getNumberOfTowers(int budget) {
+        assert budget >= 0;
+
+        return Math.min(budget / towerAttributes.getBuildCost(), scores.size());
+    }
+
+    /**
+     * Getter for the scores of the sites.
+     *
+     * @return the site scores.
+     */
+    public SiteScores getScores() {
+        return scores;
+    }
+
+    /**
+     * Getter for the number of games played to the end.
+     *
+     * @return a non negative number of games.
+     */
+    public long getGamesPlayed() {
+        return gamesPlayed.get();
+    }
+
+    /**
+     * Getter for the number of games abandoned because they could not beat the best placement.
+     *
+     * @return a non negative number of games.
+     */
+    public long getGamesAbandoned() {
+        return gamesAbandoned.get();
+    }
+
+    /**
+     * Searches for the placement of towers that kills the most monsters.
+     *
+     * @param budget amount available to build towers, enough for at least one.
+     * @param candidates number of empty sites, the best ranked ones, each tower may move to in a round.
+     * @param rounds maximum number of rounds, each of them moving one tower.
+     * @param pool pool where the games are played, whose parallelism bounds the games played at a time.
+     *
+     * @return the best placement found.
+     */
+    public Placement optimize(int budget, int candidates, int rounds, ForkJoinPool pool) {
+        assert getNumberOfTowers(budget) > 0;
+        assert candidates > 0;
+        assert rounds >= 0;
+        assert pool != null;
+
+        // ranks of the sites of the towers, starting from the best ranked sites
+        int[] placed = IntStream.range(0, getNumberOfTowers(budget)).toArray();
+        Placement best = play(placed, new AtomicInteger(0));
+
+        for(int round = 0; round < rounds && best.getKills() < numberOfMonsters; round++) {
+            int[] current = placed;
+            int[] empty = IntStream.range(0, scores.size()).filter(rank -> Arrays.stream(current).noneMatch(
+                    tower -> tower == rank)).limit(candidates).toArray();
+
+            if(empty.length == 0)
+                break;
+
+            // only the placements that kill more than the current one are played to the end
+            AtomicInteger bound = new AtomicInteger(best.getKills() + 1);
+            List<Placement> results = pool.submit(() -> IntStream.range(0, current.length * empty.length).parallel()
+                    .mapToObj(move -> play(moved(current, empty, move), bound)).toList()).join();
+            int chosen = -1;
+
+            for(int move = 0; move < results.size(); move++) {
+                Placement result = results.get(move);
+
+                if(result != null && (chosen < 0 || result.getKills() > results.get(chosen).getKills() ||
+                        result.getKills() == results.get(chosen).getKills() &&
+                        result.getTicks() < results.get(chosen).getTicks()))
+                    chosen = move;
+            }
+
+            if(chosen < 0)
+                break;
+
+            placed = moved(current, empty, chosen);
+            best = results.get(chosen);
+        }
+
+        return best;
+    }
+
+    /**
+     * Writes the map with the towers of a placement, in the format of the map files.
+     *
+     * @param out stream where the map is written.
+     * @param placement placement whose towers replace the towers of the map.
+     */
+    public void writeMap(PrintStream out, Placement placement) {
+        assert out != null;
+        assert placement != null;
+
+        int columns = map.getNumberOfColumns();
+        long[] towers = GameMap.newBitmap(columns, map.getNumberOfLines());
+
+        for(Position tower : placement.getTowers())
+            GameMap.set(towers, tower.getCoordinateY() * columns + tower.getCoordinateX());
+
+        StringBuilder line = new StringBuilder(columns);
+
+        for(int y = 0; y < map.getNumberOfLines(); y++) {
+            line.setLength(0);
+
+            for(int x = 0; x < columns; x++) {
+                int cell = y * columns + x;
+
+                if(map.getBegin().equals(new Position(x, y)))
+                    line.append('B');
+                else if(map.getEnd().equals(new Position(x, y)))
+                    line.append('E');
+                else if(map.isPath(cell))
+                    line.append('X');
+                else
+                    line.append((towers[cell >>> 6] & 1L << cell) != 0 ? 'T' : '#');
+            }
+
+            out.println(line);
+        }
+    }
+
+    /* Ranks of the sites after a tower moves to an empty site, the move packing the tower and the site */
+    private static int[] moved(int[] placed, int[] empty, int move) {
+        int[] ranks = placed.clone();
+
+        ranks[move / empty.length] = empty[move % empty.length];
+
+        return ranks;
+    }
+
+    /* Plays a game with towers on some sites, or returns null once it cannot kill as many monsters as the bound */
+    private Placement play(int[] ranks, AtomicInteger bound) {
+        StepTicker ticker = new StepTicker();
+        WorldState world = worlds.get();
+        SpawnScheduler spawner = new SpawnScheduler(ticker, spawnWaveSize, spawnWaveInterval);
+        List<Position> positions = new ArrayList<>();
+        List<Tower> towers = new ArrayList<>();
+        List<Monster> monsters = new ArrayList<>();
+
+        // the last game of the thread may have been abandoned with monsters still in the world
+        world.clear();
+
+        // the towers are built in row-major order, so the game does not depend on the order of the ranks
+        for(int rank : Arrays.stream(ranks).boxed().sorted(Comparator.comparingInt(scores::getSite))
+                .mapToInt(Integer::intValue).toArray()) {
+            int site = scores.getSite(rank);
+            Position position = new Position(world.getCoordinateX(site), world.getCoordinateY(site));
+
+            positions.add(position);
+            towers.add(new Tower(world, ticker, position, towerAttributes, scores.getTowerCoverage(rank)));
+        }
+
+        for(int i = 0; i < numberOfMonsters; i++)
+            monsters.add(new Monster(monsterAttributes, world, ticker, route, spawner));
+
+        monsters.forEach(spawner::enqueue);
+
+        TickEngine engine = new TickEngine(world, towers, monsters, ticker, 0);
+
+        while (!engine.isFinished()) {
+            engine.step();
+
+            if(numberOfMonsters - engine.getLeaks() < bound.get()) {
+                gamesAbandoned.incrementAndGet();
+                return null;
+            }
+        }
+
+        gamesPlayed.incrementAndGet();
+        bound.accumulateAndGet(engine.getKills(), Math::max);
+
+        return new Placement(positions, engine.getKills(), engine.getLeaks(), engine.getTick());
+    }
+
+    /* Headless world on the map, with no towers yet */
+    private WorldState newWorld() {
+        RegionGrid regions = new RegionGrid(map.getNumberOfColumns(), map.getNumberOfLines(), 1, 1);
+
+        return new WorldState(map, regions, Math.min(numberOfMonsters, map.getPathCells()), new HeadlessRenderer(),
+                SimulationListener.NONE);
+    }
+}
@@ -0,0 +1,194 @@
+package pt.ua.towerdefense.batch;
+
+import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+import pt.ua.towerdefense.towers.TowerAttributes;
+import pt.ua.towerdefense.world.GameMap;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.TowerCoverage;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Class that scores the cells where a tower can be built by how much of the route it can shoot at.
+ * Only the cells off the path with some route cell inside the shot range are sites. The coverage
+ * of a site is the number of route cells inside its shot range, and its exposure the number of
+ * cycles a monster spends on those cells while it follows the route, which is how long a tower on
+ * the site can shoot at each monster. Neither depends on the other towers, so the scores are
+ * computed once, in parallel, and shared by every placement that is tried. Sites are ranked from
+ * the highest exposure to the lowest, then by coverage, then by cell. The route cells covered by a
+ * tower on each site are kept as well, so that the towers built on a site in every game share them.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class SiteScores {
+    /* Packed index of the cell of each site, in the order of the ranking */
+    private final int[] sites;
+
+    /* Number of route cells inside the shot range of each site, in the order of the ranking */
+    private final int[] coverage;
+
+    /* Cycles a monster spends inside the shot range of each site, in the order of the ranking */
+    private final long[] exposure;
+
+    /* Route cells covered by a tower on each site, in the order of the ranking */
+    private final TowerCoverage[] towerCoverages;
+
+    /**
+     * Constructor for the site scores.
+     *
+     * @param world world whose map holds the sites.
+     * @param route route followed by the monsters.
+     * @param towerAttributes attributes of the towers, that give their shot and radar ranges.
+     * @param monsterAttributes attributes of the monsters, that give the cycles of each step of the route.
+     */
+    public SiteScores(WorldState world, Route route, TowerAttributes towerAttributes,
+                      MonsterAttributes monsterAttributes) {
+        assert world != null;
+        assert route != null;
+        assert towerAttributes != null;
+        assert monsterAttributes != null;
+
+        int shotRange = towerAttributes.getShotRange();
+
+        // cycles spent on each route cell, indexed by its progress, since every cell has its own progress
+        long[] dwell = new long[route.getLength() + 1];
+        int cell = route.getBeginning();
+
+        for(int step = 0; step < route.getLength(); step++) {
+            boolean moving = route.getPhase(step) == MonsterPhase.MOVING;
+
+            dwell[route.getProgress(cell)] += moving ? monsterAttributes.getMoveCycles() :
+                    monsterAttributes.getRotateCycles();
+            cell = route.getCell(step);
+        }
+
+        long[] candidates = GameMap.newBitmap(world.getNumberOfColumns(), world.getNumberOfLines());
+
+        markSites(world, route.getBeginning(), shotRange, candidates);
+
+        for(int step = 0; step < route.getLength(); step++) {
+            if(route.getProgress(route.getCell(step)) == step + 1)
+                markSites(world, route.getCell(step), shotRange, candidates);
+        }
+
+        int[] found = IntStream.range(0, candidates.length * Long.SIZE)
+                .filter(site -> (candidates[site >>> 6] & 1L << site) != 0).toArray();
+        int[] covered = new int[found.length];
+        long[] exposed = new long[found.length];
+        TowerCoverage[] coverages = new TowerCoverage[found.length];
+
+        IntStream.range(0, found.length).parallel().forEach(index -> {
+            int x = world.getCoordinateX(found[index]);
+            int y = world.getCoordinateY(found[index]);
+
+            coverages[index] = new TowerCoverage(world, route, new Position(x, y), towerAttributes.getRadarRange(),
+                    shotRange);
+
+            int maxX = Math.min(x + shotRange, world.getNumberOfColumns() - 1);
+            int maxY = Math.min(y + shotRange, world.getNumberOfLines() - 1);
+
+            for(int nx = Math.max(x - shotRange, 0); nx <= maxX; nx++) {
+                for(int ny = Math.max(y - shotRange, 0); ny <= maxY; ny++) {
+                    int progress = route.getProgress(world.cellOf(nx, ny));
+
+                    if(progress != Route.NOT_ON_ROUTE) {
+                        covered[index]++;
+                        exposed[index] += dwell[progress];
+                    }
+                }
+            }
+        });
+
+        Integer[] order = IntStream.range(0, found.length).boxed().toArray(Integer[]::new);
+
+        Arrays.sort(order, Comparator.<Integer>comparingLong(index -> -exposed[index])
+                .thenComparingInt(index -> -covered[index]).thenComparingInt(index -> found[index]));
+
+        this.sites = Arrays.stream(order).mapToInt(index -> found[index]).toArray();
+        this.coverage = Arrays.stream(order).mapToInt(index -> covered[index]).toArray();
+        this.exposure = Arrays.stream(order).mapToLong(index -> exposed[index]).toArray();
+        this.towerCoverages = Arrays.stream(order).map(index -> coverages[index]).toArray(TowerCoverage[]::new);
+    }
+
+    /**
+     * Getter for the number of sites.
+     *
+     * @return a non negative number of sites.
+     */
+    public int size() {
+        return sites.length;
+    }
+
+    /**
+     * Getter for the cell of a site.
+     *
+     * @param rank rank of the site, zero for the highest exposure.
+     *
+     * @return the packed index of the cell.
+     */
+    public int getSite(int rank) {
+        assert rank >= 0 && rank < sites.length;
+
+        return sites[rank];
+    }
+
+    /**
+     * Getter for the coverage of a site.
+     *
+     * @param rank rank of the site.
+     *
+     * @return the positive number of route cells inside the shot range of the site.
+     */
+    public int getCoverage(int rank) {
+        assert rank >= 0 && rank < sites.length;
+
+        return coverage[rank];
+    }
+
+    /**
+     * Getter for the exposure of a site.
+     *
+     * @param rank rank of the site.
+     *
+     * @return the number of cycles a monster spends inside the shot range of the site.
+     */
+    public long getExposure(int rank) {
+        assert rank >= 0 && rank < sites.length;
+
+        return exposure[rank];
+    }
+
+    /**
+     * Getter for the route cells covered by a tower on a site.
+     *
+     * @param rank rank of the site.
+     *
+     * @return the coverage of a tower with the attributes of the scores, in any world on the same map and regions.
+     */
+    public TowerCoverage getTowerCoverage(int rank) {
+        assert rank >= 0 && rank < sites.length;
+
+        return towerCoverages[rank];
+    }
+
+    /* Marks the cells off the path that have a route cell inside their shot range */
+    private static void markSites(WorldState world, int cell, int shotRange, long[] candidates) {
+        int x = world.getCoordinateX(cell);
+        int y = world.getCoordinateY(cell);
+        int maxX = Math.min(x + shotRange, world.getNumberOfColumns() - 1);
+        int maxY = Math.min(y + shotRange, world.getNumberOfLines() - 1);
+
+        for(int nx = Math.max(x - shotRange, 0); nx <= maxX; nx++) {
+            for(int ny = Math.max(y - shotRange, 0); ny <= maxY; ny++) {
+                if(world.isPositionForTower(new Position(nx, ny)))
+                    GameMap.set(candidates, world.cellOf(nx, ny));
+            }
+        }
+    }
+}
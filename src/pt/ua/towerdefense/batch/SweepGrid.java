@@ -0,0 +1,262 @@
+package pt.ua.towerdefense.batch;
+
+import pt.ua.towerdefense.definitions.ConfigurationValues;
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+import pt.ua.towerdefense.monsters.MonsterAttributes;
+import pt.ua.towerdefense.towers.TowerAttributes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that represents a grid of monster and tower attributes to play games with.
+ * A sweep file has one line per swept parameter, "name = values", where the values are
+ * separated by commas, and numbers may also be given as inclusive ranges, "from..to".
+ * Empty lines and lines starting with '#' are ignored, and parameters that are not swept
+ * take their value from the configuration. Every point of the grid is a combination of one
+ * value of each parameter, and points are numbered with the last parameter changing fastest.
+ * No point may have a shot range larger than its radar range.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class SweepGrid {
+    /**
+     * Names of the parameters, in the order of the columns of the results.
+     */
+    public static final List<String> PARAMETERS = List.of("monster.health", "monster.move-cycles",
+            "monster.rotation-cycles", "tower.damage", "tower.build-cost", "tower.rotation-cycles",
+            "tower.shoot-cycles", "tower.cooldown-cycles", "tower.shot-range", "tower.radar-range",
+            "tower.radar-cycles", "tower.targeting");
+
+    /* Index of the targeting policy, the only parameter that is not a number */
+    private static final int TARGETING = PARAMETERS.indexOf("tower.targeting");
+
+    /* Index of the shot range, that must not be larger than the radar range */
+    private static final int SHOT_RANGE = PARAMETERS.indexOf("tower.shot-range");
+
+    /* Index of the radar range */
+    private static final int RADAR_RANGE = PARAMETERS.indexOf("tower.radar-range");
+
+    /* Maximum number of values of a parameter */
+    private static final int MAX_VALUES = 1 << 16;
+
+    /* Values of each parameter, as they are written in the results */
+    private final String[][] values;
+
+    /* Number of points of the grid */
+    private final int size;
+
+    private SweepGrid(String[][] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Loads a sweep file.
+     *
+     * @param file path of the sweep file.
+     *
+     * @return the grid of the sweep.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidSweepException if the file does not describe a valid grid.
+     */
+    public static SweepGrid load(Path file) throws IOException, InvalidSweepException {
+        assert file != null;
+
+        return parse(Files.readAllLines(file));
+    }
+
+    /**
+     * Parses the lines of a sweep file.
+     *
+     * @param lines lines of the file.
+     *
+     * @return the grid of the sweep.
+     *
+     * @throws InvalidSweepException if the lines do not describe a valid grid.
+     */
+    public static SweepGrid parse(List<String> lines) throws InvalidSweepException {
+        assert lines != null;
+
+        String[][] values = new String[PARAMETERS.size()][];
+        String[] defaults = {
+                String.valueOf(ConfigurationValues.MONSTER_HEALTH),
+                String.valueOf(ConfigurationValues.MONSTER_MOVE_CYCLES),
+                String.valueOf(ConfigurationValues.MONSTER_ROTATION_CYCLES),
+                String.valueOf(ConfigurationValues.TOWER_POTENTIAL_DAMAGE),
+                String.valueOf(ConfigurationValues.TOWER_BUILD_COST),
+                String.valueOf(ConfigurationValues.TOWER_ROTATION_CYCLES),
+                String.valueOf(ConfigurationValues.TOWER_SHOOT_CYCLES),
+                String.valueOf(ConfigurationValues.TOWER_COOLDOWN_CYCLES),
+                String.valueOf(ConfigurationValues.TOWER_SHOT_RANGE),
+                String.valueOf(ConfigurationValues.TOWER_RADAR_RANGE),
+                String.valueOf(ConfigurationValues.TOWER_RADAR_CYCLES),
+                policyName(ConfigurationValues.TOWER_TARGETING_POLICY)
+        };
+
+        for(String line : lines) {
+            line = line.strip();
+
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            int equals = line.indexOf('=');
+            int parameter = equals < 0 ? -1 : PARAMETERS.indexOf(line.substring(0, equals).strip());
+
+            if(parameter < 0)
+                throw new InvalidSweepException("Unrecognized sweep line: " + line + ". Allowed parameters: " +
+                        String.join(", ", PARAMETERS) + ".");
+
+            if(values[parameter] != null)
+                throw new InvalidSweepException("Parameter " + PARAMETERS.get(parameter) + " is swept twice.");
+
+            values[parameter] = parseValues(parameter, line.substring(equals + 1));
+        }
+
+        long size = 1;
+
+        for(int parameter = 0; parameter < values.length; parameter++) {
+            if(values[parameter] == null)
+                values[parameter] = new String[] {defaults[parameter]};
+
+            size *= values[parameter].length;
+
+            if(size > Integer.MAX_VALUE)
+                throw new InvalidSweepException("Sweep must have less than 2^31 points.");
+        }
+
+        // every shot range is combined with every radar range, so the largest and the smallest must already fit
+        int maxShotRange = Arrays.stream(values[SHOT_RANGE]).mapToInt(Integer::parseInt).max().getAsInt();
+        int minRadarRange = Arrays.stream(values[RADAR_RANGE]).mapToInt(Integer::parseInt).min().getAsInt();
+
+        if(maxShotRange > minRadarRange)
+            throw new InvalidSweepException("Parameter tower.shot-range must not be larger than tower.radar-range, " +
+                    "but the sweep combines a shot range of " + maxShotRange + " with a radar range of " +
+                    minRadarRange + ".");
+
+        return new SweepGrid(values, (int) size);
+    }
+
+    /**
+     * Getter for the number of points of the grid.
+     *
+     * @return a positive number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the value of a parameter at a point of the grid.
+     *
+     * @param point index of the point.
+     * @param parameter index of the parameter in PARAMETERS.
+     *
+     * @return the value, as written in the sweep file.
+     */
+    public String getValue(int point, int parameter) {
+        assert point >= 0 && point < size;
+        assert parameter >= 0 && parameter < values.length;
+
+        for(int later = values.length - 1; later > parameter; later--)
+            point /= values[later].length;
+
+        return values[parameter][point % values[parameter].length];
+    }
+
+    /**
+     * Getter for the monster attributes at a point of the grid.
+     *
+     * @param point index of the point.
+     *
+     * @return the attributes of the monsters.
+     */
+    public MonsterAttributes getMonsterAttributes(int point) {
+        return new MonsterAttributes(getNumber(point, 0), getNumber(point, 1), getNumber(point, 2));
+    }
+
+    /**
+     * Getter for the tower attributes at a point of the grid.
+     *
+     * @param point index of the point.
+     *
+     * @return the attributes of the towers.
+     */
+    public TowerAttributes getTowerAttributes(int point) {
+        return new TowerAttributes(getNumber(point, 3), getNumber(point, 4), getNumber(point, 5),
+                getNumber(point, 6), getNumber(point, 7), getNumber(point, 8), getNumber(point, 9),
+                getNumber(point, 10), policyOf(getValue(point, TARGETING)));
+    }
+
+    /* Getter for the value of a numeric parameter at a point of the grid */
+    private int getNumber(int point, int parameter) {
+        return Integer.parseInt(getValue(point, parameter));
+    }
+
+    /* Parses the values of a parameter, separated by commas */
+    private static String[] parseValues(int parameter, String text) throws InvalidSweepException {
+        List<String> parsed = new ArrayList<>();
+
+        for(String token : text.split(",")) {
+            token = token.strip();
+
+            if(parameter == TARGETING) {
+                if(policyOf(token) == null)
+                    throw new InvalidSweepException("The targeting policy must be last, furthest, closest, " +
+                            "lowest-health or highest-health.");
+
+                parsed.add(token.toLowerCase());
+            } else {
+                int range = token.indexOf("..");
+                int from = parsePositive(parameter, range < 0 ? token : token.substring(0, range));
+                int to = range < 0 ? from : parsePositive(parameter, token.substring(range + 2));
+
+                if(to < from || parsed.size() + (long) to - from >= MAX_VALUES)
+                    throw new InvalidSweepException("Parameter " + PARAMETERS.get(parameter) + " must have an " +
+                            "increasing range of at most " + MAX_VALUES + " values.");
+
+                for(int value = from; value <= to; value++)
+                    parsed.add(String.valueOf(value));
+            }
+        }
+
+        return parsed.toArray(new String[0]);
+    }
+
+    /* Parses a number that must be positive */
+    private static int parsePositive(int parameter, String token) throws InvalidSweepException {
+        int value;
+
+        try {
+            value = Integer.parseInt(token.strip());
+        } catch (NumberFormatException e) {
+            value = -1;
+        }
+
+        if(value <= 0)
+            throw new InvalidSweepException("Parameter " + PARAMETERS.get(parameter) +
+                    " must only have positive integers.");
+
+        return value;
+    }
+
+    /* Targeting policy of a name, as given in the command line, or null if there is none */
+    private static TargetingPolicy policyOf(String name) {
+        try {
+            return TargetingPolicy.valueOf(name.strip().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /* Name of a targeting policy, as given in the command line */
+    private static String policyName(TargetingPolicy policy) {
+        return policy.name().toLowerCase().replace('_', '-');
+    }
+}
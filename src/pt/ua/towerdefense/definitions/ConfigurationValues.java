@@ -13,6 +13,21 @@ public class ConfigurationValues {
      */
     public static final long TICK_MS = 100;
 
+    /**
+     * Number of ticks between two checkpoints of the world.
+     */
+    public static final long CHECKPOINT_INTERVAL = 1000;
+
+    /**
+     * Number of empty sites, the best ranked ones, that each tower may move to in a round of the placement search.
+     */
+    public static final int PLACEMENT_CANDIDATES = 16;
+
+    /**
+     * Maximum number of rounds of the placement search.
+     */
+    public static final int PLACEMENT_ROUNDS = 20;
+
     // MONSTER SECTION
 
     /**
@@ -30,6 +45,16 @@ public class ConfigurationValues {
      */
     public static final int MONSTER_MOVE_CYCLES = 5;
 
+    /**
+     * Maximum number of monsters that enter the world in each wave.
+     */
+    public static final int SPAWN_WAVE_SIZE = 1;
+
+    /**
+     * Number of ticks from the start of a wave of monsters to the start of the next.
+     */
+    public static final long SPAWN_WAVE_INTERVAL = 0;
+
     // TOWER SECTION
 
     /**
@@ -71,4 +96,9 @@ public class ConfigurationValues {
      * Minimum number of cycles the tower takes to use the radar.
      */
     public static final int TOWER_RADAR_CYCLES = 2;
+
+    /**
+     * Way of choosing which monster in shooting range the tower shoots.
+     */
+    public static final TargetingPolicy TOWER_TARGETING_POLICY = TargetingPolicy.LAST;
 }
@@ -0,0 +1,28 @@
+package pt.ua.towerdefense.definitions;
+
+/**
+ * Enum that represents the ways the simulation can be executed.
+ *
+ * @author Eduardo Sousa
+ */
+public enum EngineMode {
+    /**
+     * Each monster and tower runs in its own thread.
+     */
+    THREADS,
+
+    /**
+     * Each monster and tower runs in its own virtual thread.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * A single thread advances every monster and tower in discrete ticks.
+     */
+    TICK,
+
+    /**
+     * The regions of the map advance their monsters and towers in discrete ticks, in parallel.
+     */
+    PARALLEL_TICK
+}
@@ -0,0 +1,33 @@
+package pt.ua.towerdefense.definitions;
+
+/**
+ * Enum that represents the ways a tower chooses which monster in shooting range to shoot.
+ *
+ * @author Eduardo Sousa
+ */
+public enum TargetingPolicy {
+    /**
+     * The monster that is the least advanced along the route.
+     */
+    LAST,
+
+    /**
+     * The monster that is the most advanced along the route.
+     */
+    FURTHEST,
+
+    /**
+     * The monster that is the closest to the tower.
+     */
+    CLOSEST,
+
+    /**
+     * The monster with the lowest remaining health.
+     */
+    LOWEST_HEALTH,
+
+    /**
+     * The monster with the highest remaining health.
+     */
+    HIGHEST_HEALTH
+}
@@ -0,0 +1,453 @@
+package pt.ua.towerdefense.engine;
+
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.recording.Checkpoint;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.RegionGrid;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that runs the simulation in discrete ticks, advancing the regions of the world in parallel.
+ * Each region owns the towers built on it and the monsters standing on it. In each tick, the towers
+ * of every region advance one cycle in parallel, and then the monsters of every region do the same.
+ * Towers read the cells of other regions, but no monster moves while the towers advance, so they
+ * always see the same world. Their shots record damage without locking, and it is inflicted at once
+ * before the monsters advance.<br>
+ * A monster that would move into another region in its cycle is handed off instead: it is put aside
+ * while the regions advance in parallel, together with the monsters of its region that would move
+ * into the cell it stands on. The monsters put aside are then advanced from the engine's thread, and
+ * the ones that moved into another region are given to it. Monsters never overtake each other, so
+ * each region advances its monsters in the order they entered the world, and the monsters put aside
+ * are advanced in that order too. A monster then always advances after the ones ahead of it, as with
+ * the single threaded engine, and the outcome does not depend on how the map is split in regions.
+ * Monsters enter the world in the order they were given, one at a time. Monsters that were
+ * restored from a checkpoint are already in the world, and resume where they were.
+ *
+ * @author Eduardo Sousa
+ */
+public class ParallelTickEngine {
+    /* Order in which monsters entered the world, the order in which they were created */
+    private static final Comparator<Monster> ENTRY_ORDER = Comparator.comparingLong(Monster::getId);
+
+    /* World state */
+    private final WorldState worldState;
+
+    /* Regions of the world */
+    private final RegionGrid regions;
+
+    /* Pool where the regions advance */
+    private final ForkJoinPool pool;
+
+    /* Towers of each region that cover the route */
+    private final List<List<Tower>> towers;
+
+    /* Every tower in the world, in the order they were given */
+    private final List<Tower> placed;
+
+    /* Monsters of each region */
+    private final List<List<Monster>> active;
+
+    /* Monsters of each region put aside in the current tick, in the order they entered the world */
+    private final List<List<Monster>> handoffs;
+
+    /* Monsters put aside in the current tick by every region, in the order they entered the world */
+    private final List<Monster> handoffOrder;
+
+    /* Monsters waiting to enter the world, in order */
+    private final Deque<Monster> spawning;
+
+    /* Ticker shared by the entities, advanced at the end of each tick */
+    private final StepTicker ticker;
+
+    /* Minimum duration of a tick, zero to run as fast as possible */
+    private final long tickMs;
+
+    /* Number of monsters that died in each region */
+    private final int[] kills;
+
+    /* Number of monsters that reached the end of the path in each region */
+    private final int[] leaks;
+
+    /* Region where the path begins */
+    private final int beginRegion;
+
+    /* Number of ticks run so far */
+    private long tick;
+
+    /* File where the checkpoints are written, null if there are none */
+    private Path checkpointFile;
+
+    /* Number of ticks between two checkpoints */
+    private long checkpointInterval;
+
+    /* Scheduler where the monsters wait to enter the world, saved in the checkpoints */
+    private SpawnScheduler spawner;
+
+    /**
+     * Constructor for the parallel tick engine.
+     *
+     * @param worldState world where the simulation runs, split in regions.
+     * @param towers towers to be placed in the world, not started.
+     * @param monsters monsters to be placed in the world, in order, not started, the restored ones first.
+     * @param ticker ticker given to the towers and monsters, at the tick the run starts from.
+     * @param tickMs minimum duration of a tick in milliseconds, zero to run as fast as possible.
+     * @param pool pool where the regions advance.
+     */
+    public ParallelTickEngine(WorldState worldState, List<Tower> towers, List<Monster> monsters, StepTicker ticker,
+                              long tickMs, ForkJoinPool pool) {
+        assert worldState != null;
+        assert towers != null;
+        assert monsters != null;
+        assert ticker != null;
+        assert tickMs >= 0;
+        assert pool != null;
+
+        this.worldState = worldState;
+        this.regions = worldState.getRegions();
+        this.pool = pool;
+        this.towers = new ArrayList<>();
+        this.placed = List.copyOf(towers);
+        this.active = new ArrayList<>();
+        this.handoffs = new ArrayList<>();
+        this.handoffOrder = new ArrayList<>();
+        this.spawning = new ArrayDeque<>();
+        this.ticker = ticker;
+        this.tickMs = tickMs;
+        this.kills = new int[regions.getNumberOfRegions()];
+        this.leaks = new int[regions.getNumberOfRegions()];
+        this.tick = ticker.getTick();
+
+        Position begin = worldState.getPathBeginning();
+        this.beginRegion = regions.getRegion(begin.getCoordinateX(), begin.getCoordinateY());
+
+        for(int region = 0; region < regions.getNumberOfRegions(); region++) {
+            this.towers.add(new ArrayList<>());
+            this.active.add(new ArrayList<>());
+            this.handoffs.add(new ArrayList<>());
+        }
+
+        this.worldState.deferDamage();
+
+        for(Tower tower : towers) {
+            this.worldState.addTower(tower);
+
+            // towers that cannot shoot any route cell are only drawn
+            if(tower.hasCoverage())
+                this.towers.get(regions.getRegion(tower.getCell())).add(tower);
+        }
+
+        // the restored monsters come first, in the order they entered the world
+        for(Monster monster : monsters) {
+            if(monster.getHandle() != MonsterStore.NO_HANDLE)
+                this.active.get(regions.getRegion(monster.getCell())).add(monster);
+            else
+                this.spawning.add(monster);
+        }
+    }
+
+    /**
+     * Runs ticks until every monster died or reached the end of the path.
+     *
+     * @return the number of ticks run.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the next tick.
+     */
+    public long run() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long first = tick;
+
+        while (!isFinished()) {
+            step();
+            saveCheckpoint();
+
+            if(tickMs > 0) {
+                long delay = start + (tick - first) * tickMs - System.currentTimeMillis();
+
+                if(delay > 0)
+                    Thread.sleep(delay);
+            }
+        }
+
+        return tick;
+    }
+
+    /**
+     * Advances the world by one tick.
+     */
+    public void step() {
+        pool.invoke(new RegionStep(0, regions.getNumberOfRegions(), true));
+        worldState.applyDamage();
+        pool.invoke(new RegionStep(0, regions.getNumberOfRegions(), false));
+
+        for(int region = 0; region < handoffs.size(); region++) {
+            handoffOrder.addAll(handoffs.get(region));
+            handoffs.get(region).clear();
+        }
+
+        handoffOrder.sort(ENTRY_ORDER);
+
+        for(int i = 0; i < handoffOrder.size(); i++)
+            handOff(handoffOrder.get(i));
+
+        handoffOrder.clear();
+
+        Monster next = spawning.peekFirst();
+
+        if(next != null) {
+            next.tick();
+
+            if(next.getPhase() != MonsterPhase.SPAWNING) {
+                spawning.removeFirst();
+                active.get(beginRegion).add(next);
+            }
+        }
+
+        tick++;
+        ticker.advance();
+    }
+
+    /**
+     * Checks if every monster died or reached the end of the path.
+     *
+     * @return true if the simulation is over.
+     */
+    public boolean isFinished() {
+        if(!spawning.isEmpty())
+            return false;
+
+        for(List<Monster> monsters : active) {
+            if(!monsters.isEmpty())
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Getter for the number of ticks run so far.
+     *
+     * @return a non negative number of ticks.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Getter for the number of monsters killed so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        int total = 0;
+
+        for(int region : kills)
+            total += region;
+
+        return total;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        int total = 0;
+
+        for(int region : leaks)
+            total += region;
+
+        return total;
+    }
+
+    /**
+     * Saves the state of the world every given number of ticks while the engine runs.<br>
+     * The checkpoint is written between two ticks, and replaces the previous one.
+     *
+     * @param file path of the checkpoint file.
+     * @param interval number of ticks between two checkpoints.
+     * @param spawner scheduler where the monsters wait to enter the world.
+     */
+    public void setCheckpoints(Path file, long interval, SpawnScheduler spawner) {
+        assert file != null;
+        assert interval > 0;
+        assert spawner != null;
+
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.spawner = spawner;
+    }
+
+    /**
+     * Resumes the outcome of a restored run.<br>
+     * Must be called before the first tick.
+     *
+     * @param kills number of monsters that died before the run was saved.
+     * @param leaks number of monsters that reached the end of the path before the run was saved.
+     */
+    public void restoreOutcome(int kills, int leaks) {
+        assert kills >= 0 && leaks >= 0;
+
+        // the outcome is only ever summed over the regions
+        this.kills[beginRegion] = kills;
+        this.leaks[beginRegion] = leaks;
+    }
+
+    /**
+     * Saves the state of the world.<br>
+     * Must be called between two ticks.
+     *
+     * @param spawner scheduler where the monsters wait to enter the world.
+     *
+     * @return the checkpoint of the world.
+     */
+    public Checkpoint checkpoint(SpawnScheduler spawner) {
+        assert spawner != null;
+
+        List<Monster> inWorld = new ArrayList<>();
+
+        for(List<Monster> monsters : active)
+            inWorld.addAll(monsters);
+
+        inWorld.sort(ENTRY_ORDER);
+
+        return Checkpoint.capture(worldState, tick, getKills(), getLeaks(), inWorld, spawner, placed);
+    }
+
+    /* Writes a checkpoint, if one is due at the current tick */
+    private void saveCheckpoint() {
+        if(checkpointFile == null || tick % checkpointInterval != 0)
+            return;
+
+        try {
+            checkpoint(spawner).write(checkpointFile);
+        } catch (IOException e) {
+            // the run goes on, and the next checkpoint is tried in due time
+            e.printStackTrace();
+        }
+    }
+
+    /* Advances the towers of a region by one cycle */
+    private void stepTowers(int region) {
+        List<Tower> regionTowers = towers.get(region);
+
+        for(int i = 0; i < regionTowers.size(); i++)
+            regionTowers.get(i).tick();
+    }
+
+    /* Advances the monsters of a region by one cycle, putting aside the ones that leave the region */
+    private void stepMonsters(int region) {
+        List<Monster> monsters = active.get(region);
+        List<Monster> moving = handoffs.get(region);
+        int alive = 0;
+
+        for(int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            int next = monster.getNextMove();
+
+            // monsters put aside stay in the region until they are advanced
+            if(next != WorldState.NO_CELL && (regions.getRegion(next) != region || isHandedOff(moving, next))) {
+                moving.add(monster);
+                monsters.set(alive++, monster);
+            } else if(monster.tick()) {
+                monsters.set(alive++, monster);
+            } else {
+                count(region, monster);
+            }
+        }
+
+        for(int i = monsters.size() - 1; i >= alive; i--)
+            monsters.remove(i);
+    }
+
+    /* Checks if a monster put aside by a region stands on a cell */
+    private static boolean isHandedOff(List<Monster> moving, int cell) {
+        for(int i = 0; i < moving.size(); i++) {
+            if(moving.get(i).getCell() == cell)
+                return true;
+        }
+
+        return false;
+    }
+
+    /* Advances a monster put aside, moving it to the region it ends up in */
+    private void handOff(Monster monster) {
+        int from = regions.getRegion(monster.getCell());
+        List<Monster> source = active.get(from);
+
+        if(!monster.tick()) {
+            source.remove(monster);
+            count(from, monster);
+            return;
+        }
+
+        int to = regions.getRegion(monster.getCell());
+
+        if(to != from) {
+            List<Monster> destination = active.get(to);
+            int index = Collections.binarySearch(destination, monster, ENTRY_ORDER);
+
+            assert index < 0;
+
+            source.remove(monster);
+            destination.add(-index - 1, monster);
+        }
+    }
+
+    /* Counts a monster that left the world from a region */
+    private void count(int region, Monster monster) {
+        if(monster.hasReachedEnd())
+            leaks[region]++;
+        else
+            kills[region]++;
+    }
+
+    /* Task that advances a range of regions, splitting it in halves until a single region is left */
+    private class RegionStep extends RecursiveAction {
+        /* Version of the serialized form */
+        private static final long serialVersionUID = 1L;
+
+        /* First region of the range */
+        private final int first;
+
+        /* Region after the last one of the range */
+        private final int last;
+
+        /* True to advance the towers, false to advance the monsters */
+        private final boolean stepTowers;
+
+        private RegionStep(int first, int last, boolean stepTowers) {
+            this.first = first;
+            this.last = last;
+            this.stepTowers = stepTowers;
+        }
+
+        @Override
+        protected void compute() {
+            if(last - first > 1) {
+                int middle = (first + last) >>> 1;
+                invokeAll(new RegionStep(first, middle, stepTowers), new RegionStep(middle, last, stepTowers));
+            } else if(stepTowers) {
+                stepTowers(first);
+            } else {
+                stepMonsters(first);
+            }
+        }
+    }
+}
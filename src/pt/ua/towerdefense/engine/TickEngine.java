@@ -0,0 +1,285 @@
+package pt.ua.towerdefense.engine;
+
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.recording.Checkpoint;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Class that runs the simulation in a single thread, advancing the world in discrete ticks.
+ * In each tick every tower and then every monster advances one cycle, always in the same order,
+ * so that two runs with the same map and attributes have the same outcome. The damage of the
+ * shots of every tower is recorded while the towers advance, and inflicted at once before the
+ * monsters advance.
+ * Monsters enter the world in the order they were given, one at a time. Monsters that were
+ * restored from a checkpoint are already in the world, and resume where they were.
+ *
+ * @author Eduardo Sousa
+ */
+public class TickEngine {
+    /* World state */
+    private final WorldState worldState;
+
+    /* Towers in the world that cover the route */
+    private final List<Tower> towers;
+
+    /* Every tower in the world, in the order they were given */
+    private final List<Tower> placed;
+
+    /* Monsters waiting to enter the world, in order */
+    private final Deque<Monster> spawning;
+
+    /* Monsters in the world */
+    private final List<Monster> active;
+
+    /* Ticker shared by the entities, advanced at the end of each tick */
+    private final StepTicker ticker;
+
+    /* Minimum duration of a tick, zero to run as fast as possible */
+    private final long tickMs;
+
+    /* Number of ticks run so far */
+    private long tick;
+
+    /* Number of monsters that died */
+    private int kills;
+
+    /* Number of monsters that reached the end of the path */
+    private int leaks;
+
+    /* File where the checkpoints are written, null if there are none */
+    private Path checkpointFile;
+
+    /* Number of ticks between two checkpoints */
+    private long checkpointInterval;
+
+    /* Scheduler where the monsters wait to enter the world, saved in the checkpoints */
+    private SpawnScheduler spawner;
+
+    /**
+     * Constructor for the tick engine.
+     *
+     * @param worldState world where the simulation runs.
+     * @param towers towers to be placed in the world, not started.
+     * @param monsters monsters to be placed in the world, in order, not started, the restored ones first.
+     * @param ticker ticker given to the towers and monsters, at the tick the run starts from.
+     * @param tickMs minimum duration of a tick in milliseconds, zero to run as fast as possible.
+     */
+    public TickEngine(WorldState worldState, List<Tower> towers, List<Monster> monsters, StepTicker ticker,
+                      long tickMs) {
+        assert worldState != null;
+        assert towers != null;
+        assert monsters != null;
+        assert ticker != null;
+        assert tickMs >= 0;
+
+        this.worldState = worldState;
+        this.towers = new ArrayList<>();
+        this.placed = List.copyOf(towers);
+        this.spawning = new ArrayDeque<>();
+        this.active = new ArrayList<>();
+        this.ticker = ticker;
+        this.tickMs = tickMs;
+        this.tick = ticker.getTick();
+        this.kills = 0;
+        this.leaks = 0;
+
+        this.worldState.deferDamage();
+
+        for(Tower tower : towers) {
+            this.worldState.addTower(tower);
+
+            // towers that cannot shoot any route cell are only drawn
+            if(tower.hasCoverage())
+                this.towers.add(tower);
+        }
+
+        for(Monster monster : monsters) {
+            if(monster.getHandle() != MonsterStore.NO_HANDLE)
+                this.active.add(monster);
+            else
+                this.spawning.add(monster);
+        }
+    }
+
+    /**
+     * Runs ticks until every monster died or reached the end of the path.
+     *
+     * @return the number of ticks run.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the next tick.
+     */
+    public long run() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long first = tick;
+
+        while (!isFinished()) {
+            step();
+            saveCheckpoint();
+
+            if(tickMs > 0) {
+                long delay = start + (tick - first) * tickMs - System.currentTimeMillis();
+
+                if(delay > 0)
+                    Thread.sleep(delay);
+            }
+        }
+
+        assert spawning.isEmpty() && active.isEmpty();
+
+        return tick;
+    }
+
+    /**
+     * Advances the world by one tick.
+     */
+    public void step() {
+        // indexed loops, so that a tick does not allocate iterators
+        for(int i = 0; i < towers.size(); i++)
+            towers.get(i).tick();
+
+        worldState.applyDamage();
+
+        int alive = 0;
+
+        for(int i = 0; i < active.size(); i++) {
+            Monster monster = active.get(i);
+
+            if(monster.tick())
+                active.set(alive++, monster);
+            else
+                count(monster);
+        }
+
+        for(int i = active.size() - 1; i >= alive; i--)
+            active.remove(i);
+
+        Monster next = spawning.peekFirst();
+
+        if(next != null) {
+            next.tick();
+
+            if(next.getPhase() != MonsterPhase.SPAWNING) {
+                spawning.removeFirst();
+                active.add(next);
+            }
+        }
+
+        tick++;
+        ticker.advance();
+    }
+
+    /**
+     * Checks if every monster died or reached the end of the path.
+     *
+     * @return true if the simulation is over.
+     */
+    public boolean isFinished() {
+        return spawning.isEmpty() && active.isEmpty();
+    }
+
+    /**
+     * Getter for the number of ticks run so far.
+     *
+     * @return a non negative number of ticks.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Getter for the number of monsters killed so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        return kills;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Saves the state of the world every given number of ticks while the engine runs.<br>
+     * The checkpoint is written between two ticks, and replaces the previous one.
+     *
+     * @param file path of the checkpoint file.
+     * @param interval number of ticks between two checkpoints.
+     * @param spawner scheduler where the monsters wait to enter the world.
+     */
+    public void setCheckpoints(Path file, long interval, SpawnScheduler spawner) {
+        assert file != null;
+        assert interval > 0;
+        assert spawner != null;
+
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.spawner = spawner;
+    }
+
+    /**
+     * Resumes the outcome of a restored run.<br>
+     * Must be called before the first tick.
+     *
+     * @param kills number of monsters that died before the run was saved.
+     * @param leaks number of monsters that reached the end of the path before the run was saved.
+     */
+    public void restoreOutcome(int kills, int leaks) {
+        assert kills >= 0 && leaks >= 0;
+
+        this.kills = kills;
+        this.leaks = leaks;
+    }
+
+    /**
+     * Saves the state of the world.<br>
+     * Must be called between two ticks.
+     *
+     * @param spawner scheduler where the monsters wait to enter the world.
+     *
+     * @return the checkpoint of the world.
+     */
+    public Checkpoint checkpoint(SpawnScheduler spawner) {
+        assert spawner != null;
+
+        return Checkpoint.capture(worldState, tick, kills, leaks, active, spawner, placed);
+    }
+
+    /* Writes a checkpoint, if one is due at the current tick */
+    private void saveCheckpoint() {
+        if(checkpointFile == null || tick % checkpointInterval != 0)
+            return;
+
+        try {
+            checkpoint(spawner).write(checkpointFile);
+        } catch (IOException e) {
+            // the run goes on, and the next checkpoint is tried in due time
+            e.printStackTrace();
+        }
+    }
+
+    /* Counts a monster that left the world */
+    private void count(Monster monster) {
+        if(monster.hasReachedEnd())
+            leaks++;
+        else
+            kills++;
+    }
+}
@@ -0,0 +1,80 @@
+package pt.ua.towerdefense.monitoring;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Listener that forwards every event to a list of listeners, in order.
+ *
+ * @author Eduardo Sousa
+ */
+public class CompositeSimulationListener implements SimulationListener {
+    /* Listeners that receive the events */
+    private final SimulationListener[] listeners;
+
+    /**
+     * Constructor for the composite listener.
+     *
+     * @param listeners listeners that receive the events, in the order they are called.
+     */
+    public CompositeSimulationListener(List<SimulationListener> listeners) {
+        assert listeners != null;
+        assert listeners.stream().allMatch(Objects::nonNull);
+
+        this.listeners = listeners.toArray(new SimulationListener[0]);
+    }
+
+    @Override
+    public void monsterSpawned(long monster, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.monsterSpawned(monster, cell);
+    }
+
+    @Override
+    public void monsterMoved(long monster, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.monsterMoved(monster, cell);
+    }
+
+    @Override
+    public void monsterRotated(long monster, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.monsterRotated(monster, cell);
+    }
+
+    @Override
+    public void monsterDied(long monster, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.monsterDied(monster, cell);
+    }
+
+    @Override
+    public void monsterArrived(long monster, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.monsterArrived(monster, cell);
+    }
+
+    @Override
+    public void radarSwept(long tower, int cell, int hits) {
+        for(SimulationListener listener : listeners)
+            listener.radarSwept(tower, cell, hits);
+    }
+
+    @Override
+    public void towerRotated(long tower, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.towerRotated(tower, cell);
+    }
+
+    @Override
+    public void towerShot(long tower, int cell) {
+        for(SimulationListener listener : listeners)
+            listener.towerShot(tower, cell);
+    }
+
+    @Override
+    public void worldWaited(String method, long entity, int cell, long nanos) {
+        for(SimulationListener listener : listeners)
+            listener.worldWaited(method, entity, cell, nanos);
+    }
+}
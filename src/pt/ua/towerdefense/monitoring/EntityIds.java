@@ -0,0 +1,29 @@
+package pt.ua.towerdefense.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that gives out the ids of the monsters and towers.
+ * Entities run on platform threads, on virtual threads or on no thread of their own, so they
+ * are not identified by a thread, but by an id taken when they are created. Ids start at one,
+ * grow in the order the entities are created and are never reused.<br>
+ * This class is thread safe.
+ *
+ * @author Eduardo Sousa
+ */
+public final class EntityIds {
+    /* Id of the next entity */
+    private static final AtomicLong NEXT = new AtomicLong(1);
+
+    private EntityIds() {
+    }
+
+    /**
+     * Takes the id of a new entity.
+     *
+     * @return a positive id, larger than every id taken before.
+     */
+    public static long next() {
+        return NEXT.getAndIncrement();
+    }
+}
@@ -0,0 +1,145 @@
+package pt.ua.towerdefense.monitoring;
+
+import pt.ua.towerdefense.monitoring.events.MonsterArrivalEvent;
+import pt.ua.towerdefense.monitoring.events.MonsterDeathEvent;
+import pt.ua.towerdefense.monitoring.events.MonsterMoveEvent;
+import pt.ua.towerdefense.monitoring.events.MonsterRotateEvent;
+import pt.ua.towerdefense.monitoring.events.MonsterSpawnEvent;
+import pt.ua.towerdefense.monitoring.events.RadarSweepEvent;
+import pt.ua.towerdefense.monitoring.events.SimulationEvent;
+import pt.ua.towerdefense.monitoring.events.TowerRotateEvent;
+import pt.ua.towerdefense.monitoring.events.TowerShotEvent;
+import pt.ua.towerdefense.monitoring.events.WorldWaitEvent;
+import pt.ua.towerdefense.timing.Ticker;
+
+import jdk.jfr.EventType;
+
+/**
+ * Listener that commits the events of the simulation to the flight recorder.
+ * Events are only created, filled in and committed while a recording has them enabled,
+ * so the listener costs little more than a check, and allocates nothing, when nothing is
+ * being recorded.
+ *
+ * @author Eduardo Sousa
+ */
+public class JfrSimulationListener implements SimulationListener {
+    /* Type of the monster spawn events */
+    private static final EventType MONSTER_SPAWN = EventType.getEventType(MonsterSpawnEvent.class);
+
+    /* Type of the monster move events */
+    private static final EventType MONSTER_MOVE = EventType.getEventType(MonsterMoveEvent.class);
+
+    /* Type of the monster rotation events */
+    private static final EventType MONSTER_ROTATE = EventType.getEventType(MonsterRotateEvent.class);
+
+    /* Type of the monster death events */
+    private static final EventType MONSTER_DEATH = EventType.getEventType(MonsterDeathEvent.class);
+
+    /* Type of the monster arrival events */
+    private static final EventType MONSTER_ARRIVAL = EventType.getEventType(MonsterArrivalEvent.class);
+
+    /* Type of the radar sweep events */
+    private static final EventType RADAR_SWEEP = EventType.getEventType(RadarSweepEvent.class);
+
+    /* Type of the tower rotation events */
+    private static final EventType TOWER_ROTATE = EventType.getEventType(TowerRotateEvent.class);
+
+    /* Type of the tower shot events */
+    private static final EventType TOWER_SHOT = EventType.getEventType(TowerShotEvent.class);
+
+    /* Type of the world wait events */
+    private static final EventType WORLD_WAIT = EventType.getEventType(WorldWaitEvent.class);
+
+    /* Ticker that gives the tick of each event */
+    private final Ticker ticker;
+
+    /**
+     * Constructor for the flight recorder listener.
+     *
+     * @param ticker ticker that paces the simulation.
+     */
+    public JfrSimulationListener(Ticker ticker) {
+        assert ticker != null;
+
+        this.ticker = ticker;
+    }
+
+    @Override
+    public void monsterSpawned(long monster, int cell) {
+        if(MONSTER_SPAWN.isEnabled())
+            commit(new MonsterSpawnEvent(), monster, cell);
+    }
+
+    @Override
+    public void monsterMoved(long monster, int cell) {
+        if(MONSTER_MOVE.isEnabled())
+            commit(new MonsterMoveEvent(), monster, cell);
+    }
+
+    @Override
+    public void monsterRotated(long monster, int cell) {
+        if(MONSTER_ROTATE.isEnabled())
+            commit(new MonsterRotateEvent(), monster, cell);
+    }
+
+    @Override
+    public void monsterDied(long monster, int cell) {
+        if(MONSTER_DEATH.isEnabled())
+            commit(new MonsterDeathEvent(), monster, cell);
+    }
+
+    @Override
+    public void monsterArrived(long monster, int cell) {
+        if(MONSTER_ARRIVAL.isEnabled())
+            commit(new MonsterArrivalEvent(), monster, cell);
+    }
+
+    @Override
+    public void radarSwept(long tower, int cell, int hits) {
+        if(!RADAR_SWEEP.isEnabled())
+            return;
+
+        RadarSweepEvent event = new RadarSweepEvent();
+
+        if(event.shouldCommit()) {
+            event.hits = hits;
+            commit(event, tower, cell);
+        }
+    }
+
+    @Override
+    public void towerRotated(long tower, int cell) {
+        if(TOWER_ROTATE.isEnabled())
+            commit(new TowerRotateEvent(), tower, cell);
+    }
+
+    @Override
+    public void towerShot(long tower, int cell) {
+        if(TOWER_SHOT.isEnabled())
+            commit(new TowerShotEvent(), tower, cell);
+    }
+
+    @Override
+    public void worldWaited(String method, long entity, int cell, long nanos) {
+        if(!WORLD_WAIT.isEnabled())
+            return;
+
+        WorldWaitEvent event = new WorldWaitEvent();
+
+        if(event.shouldCommit()) {
+            event.method = method;
+            event.waitTime = nanos;
+            commit(event, entity, cell);
+        }
+    }
+
+    /* Fills in the common fields of an event and commits it, if it is enabled */
+    private void commit(SimulationEvent event, long entity, int cell) {
+        if(event.shouldCommit()) {
+            event.entityId = entity;
+            event.cell = cell;
+            event.tick = ticker.getTick();
+            event.commit();
+        }
+    }
+}
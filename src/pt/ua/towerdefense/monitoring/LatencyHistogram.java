@@ -0,0 +1,141 @@
+package pt.ua.towerdefense.monitoring;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that counts durations in buckets whose bounds are powers of two nanoseconds.
+ * Bucket i counts the durations from 2^i up to 2^(i+1) nanoseconds, and bucket zero
+ * also counts the durations below one nanosecond. Recording never blocks and may be
+ * done by many threads at the same time.
+ *
+ * @author Eduardo Sousa
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets, enough for any duration that fits in a long.
+     */
+    public static final int BUCKETS = 64;
+
+    /* Number of durations in each bucket */
+    private final LongAdder[] buckets;
+
+    /* Sum of the recorded durations */
+    private final LongAdder total;
+
+    /* Longest recorded duration */
+    private final LongAccumulator max;
+
+    /**
+     * Constructor for the histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKETS];
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Long::max, 0);
+
+        for(int i = 0; i < BUCKETS; i++)
+            this.buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos duration in nanoseconds, negative durations count as zero.
+     */
+    public void record(long nanos) {
+        long duration = Math.max(nanos, 0);
+
+        buckets[duration == 0 ? 0 : 63 - Long.numberOfLeadingZeros(duration)].increment();
+        total.add(duration);
+        max.accumulate(duration);
+    }
+
+    /**
+     * Getter for the number of durations in each bucket.
+     *
+     * @return a new array with BUCKETS counts.
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+
+        for(int i = 0; i < BUCKETS; i++)
+            counts[i] = buckets[i].sum();
+
+        return counts;
+    }
+
+    /**
+     * Getter for the number of recorded durations.
+     *
+     * @return a non negative number of durations.
+     */
+    public long getCount() {
+        long count = 0;
+
+        for(LongAdder bucket : buckets)
+            count += bucket.sum();
+
+        return count;
+    }
+
+    /**
+     * Getter for the mean of the recorded durations.
+     *
+     * @return the mean in nanoseconds, zero if nothing was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    /**
+     * Getter for the longest recorded duration.
+     *
+     * @return the duration in nanoseconds, zero if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Getter for an upper bound of a percentile of the recorded durations.
+     *
+     * @param percentile percentile between 0 and 100.
+     *
+     * @return the upper bound, in nanoseconds, of the bucket where the percentile falls.
+     */
+    public long getPercentile(double percentile) {
+        assert percentile >= 0 && percentile <= 100;
+
+        long[] counts = getCounts();
+        long count = 0;
+
+        for(long bucket : counts)
+            count += bucket;
+
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if(seen >= rank && seen > 0)
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Discards every recorded duration.
+     */
+    public void reset() {
+        for(LongAdder bucket : buckets)
+            bucket.reset();
+
+        total.reset();
+        max.reset();
+    }
+}
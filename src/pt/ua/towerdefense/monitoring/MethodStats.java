@@ -0,0 +1,163 @@
+package pt.ua.towerdefense.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that collects the statistics of a world state method.
+ * Recording never blocks, so it may be done while the world lock is held.
+ *
+ * @author Eduardo Sousa
+ */
+public class MethodStats implements MethodStatsMXBean {
+    /* Name of the method */
+    private final String name;
+
+    /* Number of reads validated without the lock */
+    private final LongAdder optimisticReads;
+
+    /* Time the lock was held */
+    private final LatencyHistogram holdTime;
+
+    /* Time spent waiting for the lock or for the world to change */
+    private final LatencyHistogram waitTime;
+
+    /* Number of calls that blocked before succeeding */
+    private final LongAdder waits;
+
+    /* Number of wake-ups of blocked calls */
+    private final LongAdder wakeUps;
+
+    /**
+     * Constructor for the method statistics.
+     *
+     * @param name name of the method.
+     */
+    public MethodStats(String name) {
+        assert name != null && !name.isEmpty();
+
+        this.name = name;
+        this.optimisticReads = new LongAdder();
+        this.holdTime = new LatencyHistogram();
+        this.waitTime = new LatencyHistogram();
+        this.waits = new LongAdder();
+        this.wakeUps = new LongAdder();
+    }
+
+    /**
+     * Getter for the name of the method.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records an acquisition of the world lock.
+     *
+     * @param requested time when the lock was requested, from System.nanoTime.
+     * @param acquired time when the lock was acquired.
+     * @param released time when the lock was released.
+     */
+    public void recordLock(long requested, long acquired, long released) {
+        waitTime.record(acquired - requested);
+        holdTime.record(released - acquired);
+    }
+
+    /**
+     * Records a read that was validated without taking the world lock.
+     */
+    public void recordOptimisticRead() {
+        optimisticReads.increment();
+    }
+
+    /**
+     * Records a call that blocked before succeeding.
+     *
+     * @param nanos time spent since the call started.
+     * @param wakeUps number of times the call was woken up, positive.
+     */
+    public void recordWait(long nanos, int wakeUps) {
+        assert wakeUps > 0;
+
+        waitTime.record(nanos);
+        waits.increment();
+        this.wakeUps.add(wakeUps);
+    }
+
+    @Override
+    public long getAcquisitions() {
+        return holdTime.getCount();
+    }
+
+    @Override
+    public long getOptimisticReads() {
+        return optimisticReads.sum();
+    }
+
+    @Override
+    public long[] getHoldTimeHistogram() {
+        return holdTime.getCounts();
+    }
+
+    @Override
+    public double getMeanHoldTime() {
+        return holdTime.getMean();
+    }
+
+    @Override
+    public long getHoldTime99() {
+        return holdTime.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxHoldTime() {
+        return holdTime.getMax();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogram() {
+        return waitTime.getCounts();
+    }
+
+    @Override
+    public double getMeanWaitTime() {
+        return waitTime.getMean();
+    }
+
+    @Override
+    public long getWaitTime99() {
+        return waitTime.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxWaitTime() {
+        return waitTime.getMax();
+    }
+
+    @Override
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    @Override
+    public long getWakeUps() {
+        return wakeUps.sum();
+    }
+
+    @Override
+    public double getWakeUpsPerWait() {
+        long count = waits.sum();
+
+        return count == 0 ? 0 : (double) wakeUps.sum() / count;
+    }
+
+    @Override
+    public void reset() {
+        optimisticReads.reset();
+        holdTime.reset();
+        waitTime.reset();
+        waits.reset();
+        wakeUps.reset();
+    }
+}
@@ -0,0 +1,106 @@
+package pt.ua.towerdefense.monitoring;
+
+/**
+ * Management interface of the statistics of a world state method.
+ * Durations are in nanoseconds, and histograms have one count per power of two nanoseconds.
+ *
+ * @author Eduardo Sousa
+ */
+public interface MethodStatsMXBean {
+    /**
+     * Getter for the number of times the method took the world lock.
+     *
+     * @return a non negative number of acquisitions.
+     */
+    long getAcquisitions();
+
+    /**
+     * Getter for the number of reads that were validated without taking the world lock.
+     *
+     * @return a non negative number of reads.
+     */
+    long getOptimisticReads();
+
+    /**
+     * Getter for the histogram of the time the world lock was held.
+     *
+     * @return the count of each bucket.
+     */
+    long[] getHoldTimeHistogram();
+
+    /**
+     * Getter for the mean time the world lock was held.
+     *
+     * @return the mean in nanoseconds.
+     */
+    double getMeanHoldTime();
+
+    /**
+     * Getter for the 99th percentile of the time the world lock was held.
+     *
+     * @return an upper bound in nanoseconds.
+     */
+    long getHoldTime99();
+
+    /**
+     * Getter for the longest time the world lock was held.
+     *
+     * @return the duration in nanoseconds.
+     */
+    long getMaxHoldTime();
+
+    /**
+     * Getter for the histogram of the time spent waiting, for the lock or for the world to change.
+     *
+     * @return the count of each bucket.
+     */
+    long[] getWaitTimeHistogram();
+
+    /**
+     * Getter for the mean time spent waiting.
+     *
+     * @return the mean in nanoseconds.
+     */
+    double getMeanWaitTime();
+
+    /**
+     * Getter for the 99th percentile of the time spent waiting.
+     *
+     * @return an upper bound in nanoseconds.
+     */
+    long getWaitTime99();
+
+    /**
+     * Getter for the longest time spent waiting.
+     *
+     * @return the duration in nanoseconds.
+     */
+    long getMaxWaitTime();
+
+    /**
+     * Getter for the number of calls that blocked at least once before succeeding.
+     *
+     * @return a non negative number of waits.
+     */
+    long getWaits();
+
+    /**
+     * Getter for the number of times a blocked call was woken up.
+     *
+     * @return a non negative number of wake-ups.
+     */
+    long getWakeUps();
+
+    /**
+     * Getter for the number of wake-ups per successful wait.<br>
+     * Values above one count the wake-ups that found the world still unchanged for the caller.
+     *
+     * @return the ratio, zero if no call blocked.
+     */
+    double getWakeUpsPerWait();
+
+    /**
+     * Discards the statistics collected so far.
+     */
+    void reset();
+}
@@ -0,0 +1,102 @@
+package pt.ua.towerdefense.monitoring;
+
+/**
+ * Interface for the observers of the events of the simulation.
+ * Entities are identified by the id they took from EntityIds, and cells by their packed index,
+ * line * columns + column. Methods may be called by many threads at the same time, and
+ * some of them while the world lock is held, so implementations must neither block nor
+ * call back into the world. Every method does nothing by default.
+ *
+ * @author Eduardo Sousa
+ */
+public interface SimulationListener {
+    /**
+     * Listener that ignores every event.
+     */
+    SimulationListener NONE = new SimulationListener() {
+    };
+
+    /**
+     * A monster entered the world.
+     *
+     * @param monster id of the monster.
+     * @param cell cell where the monster entered.
+     */
+    default void monsterSpawned(long monster, int cell) {
+    }
+
+    /**
+     * A monster moved to another cell.
+     *
+     * @param monster id of the monster.
+     * @param cell cell where the monster moved to.
+     */
+    default void monsterMoved(long monster, int cell) {
+    }
+
+    /**
+     * A monster turned on the spot.
+     *
+     * @param monster id of the monster.
+     * @param cell cell where the monster is.
+     */
+    default void monsterRotated(long monster, int cell) {
+    }
+
+    /**
+     * A monster died and left the world.
+     *
+     * @param monster id of the monster.
+     * @param cell cell where the monster died.
+     */
+    default void monsterDied(long monster, int cell) {
+    }
+
+    /**
+     * A monster reached the end of the path and left the world.
+     *
+     * @param monster id of the monster.
+     * @param cell cell where the path ends.
+     */
+    default void monsterArrived(long monster, int cell) {
+    }
+
+    /**
+     * A tower swept its radar.
+     *
+     * @param tower id of the tower.
+     * @param cell cell where the tower is.
+     * @param hits number of monsters found in radar range.
+     */
+    default void radarSwept(long tower, int cell, int hits) {
+    }
+
+    /**
+     * A tower rotated its cannon.
+     *
+     * @param tower id of the tower.
+     * @param cell cell the cannon points to.
+     */
+    default void towerRotated(long tower, int cell) {
+    }
+
+    /**
+     * A tower shot.
+     *
+     * @param tower id of the tower.
+     * @param cell cell that was shot at.
+     */
+    default void towerShot(long tower, int cell) {
+    }
+
+    /**
+     * An entity was blocked in the world before a call succeeded.
+     *
+     * @param method name of the world state method.
+     * @param entity id of the monster or tower.
+     * @param cell cell the entity was waiting for.
+     * @param nanos time spent blocked, in nanoseconds.
+     */
+    default void worldWaited(String method, long entity, int cell, long nanos) {
+    }
+}
@@ -0,0 +1,101 @@
+package pt.ua.towerdefense.monitoring;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that collects how the world state lock is used.<br>
+ * The methods that take the world lock record how long they waited for it and how long they held it.
+ * The blocking methods also record the whole time they waited for the world to change and how many
+ * times they were woken up, while each attempt they make is recorded under the non-blocking method
+ * they call. The statistics can be published as JMX beans, under the pt.ua.towerdefense domain.
+ *
+ * @author Eduardo Sousa
+ */
+public class WorldStateStats implements WorldStateStatsMXBean {
+    /* Statistics of each instrumented method */
+    private final MethodStats[] methods;
+
+    /* Number of monsters blocked waiting for the world to change */
+    private final AtomicInteger blockedMonsters = new AtomicInteger();
+
+    /* Number of towers blocked waiting for a monster in radar range */
+    private final AtomicInteger blockedTowers = new AtomicInteger();
+
+    /**
+     * Constructor for the world state statistics.
+     *
+     * @param methods statistics of each instrumented method, with distinct names.
+     */
+    public WorldStateStats(MethodStats... methods) {
+        assert methods != null;
+
+        this.methods = methods.clone();
+    }
+
+    /**
+     * Marks a monster as blocked, or as no longer blocked.
+     *
+     * @param blocked true when the monster starts waiting, false when it stops.
+     */
+    public void monsterBlocked(boolean blocked) {
+        blockedMonsters.addAndGet(blocked ? 1 : -1);
+    }
+
+    /**
+     * Marks a tower as blocked, or as no longer blocked.
+     *
+     * @param blocked true when the tower starts waiting, false when it stops.
+     */
+    public void towerBlocked(boolean blocked) {
+        blockedTowers.addAndGet(blocked ? 1 : -1);
+    }
+
+    @Override
+    public int getBlockedMonsters() {
+        return blockedMonsters.get();
+    }
+
+    @Override
+    public int getBlockedTowers() {
+        return blockedTowers.get();
+    }
+
+    @Override
+    public String[] getMethods() {
+        String[] names = new String[methods.length];
+
+        for(int i = 0; i < methods.length; i++)
+            names[i] = methods[i].getName();
+
+        return names;
+    }
+
+    @Override
+    public void reset() {
+        for(MethodStats method : methods)
+            method.reset();
+    }
+
+    /**
+     * Publishes the statistics in the platform MBean server.<br>
+     * The world state bean is named pt.ua.towerdefense:type=WorldState, and the bean of each
+     * method is named pt.ua.towerdefense:type=WorldState,method=&lt;name&gt;.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(this, new ObjectName("pt.ua.towerdefense:type=WorldState"));
+
+            for(MethodStats method : methods)
+                server.registerMBean(method, new ObjectName("pt.ua.towerdefense:type=WorldState,method=" +
+                        method.getName()));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
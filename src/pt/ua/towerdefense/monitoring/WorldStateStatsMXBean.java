@@ -0,0 +1,34 @@
+package pt.ua.towerdefense.monitoring;
+
+/**
+ * Management interface of the statistics of the world state as a whole.
+ *
+ * @author Eduardo Sousa
+ */
+public interface WorldStateStatsMXBean {
+    /**
+     * Getter for the number of monsters blocked waiting for the world to change.
+     *
+     * @return a non negative number of monsters.
+     */
+    int getBlockedMonsters();
+
+    /**
+     * Getter for the number of towers blocked waiting for a monster in radar range.
+     *
+     * @return a non negative number of towers.
+     */
+    int getBlockedTowers();
+
+    /**
+     * Getter for the names of the instrumented methods.
+     *
+     * @return the names, each one also registered as a method statistics bean.
+     */
+    String[] getMethods();
+
+    /**
+     * Discards the statistics of every method collected so far.
+     */
+    void reset();
+}
@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a monster reached the end of the path and left the world.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.MonsterArrival")
+@Label("Monster Arrival")
+@Description("A monster reached the end of the path and left the world.")
+public class MonsterArrivalEvent extends SimulationEvent {
+}
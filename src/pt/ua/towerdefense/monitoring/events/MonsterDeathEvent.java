@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a monster died and left the world.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.MonsterDeath")
+@Label("Monster Death")
+@Description("A monster died and left the world.")
+public class MonsterDeathEvent extends SimulationEvent {
+}
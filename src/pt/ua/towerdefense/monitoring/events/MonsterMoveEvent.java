@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a monster moved to another cell.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.MonsterMove")
+@Label("Monster Move")
+@Description("A monster moved to another cell.")
+public class MonsterMoveEvent extends SimulationEvent {
+}
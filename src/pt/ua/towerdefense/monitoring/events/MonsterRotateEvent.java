@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a monster turned on the spot.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.MonsterRotate")
+@Label("Monster Rotate")
+@Description("A monster turned on the spot.")
+public class MonsterRotateEvent extends SimulationEvent {
+}
@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a monster entered the world.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.MonsterSpawn")
+@Label("Monster Spawn")
+@Description("A monster entered the world.")
+public class MonsterSpawnEvent extends SimulationEvent {
+}
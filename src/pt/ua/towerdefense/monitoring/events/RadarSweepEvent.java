@@ -0,0 +1,19 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a tower swept its radar.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.RadarSweep")
+@Label("Radar Sweep")
+@Description("A tower swept its radar.")
+public class RadarSweepEvent extends SimulationEvent {
+    @Label("Hits")
+    @Description("Number of monsters found in radar range")
+    public int hits;
+}
@@ -0,0 +1,26 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the flight recorder events of the simulation.
+ *
+ * @author Eduardo Sousa
+ */
+@Category("Tower Defense")
+public abstract class SimulationEvent extends Event {
+    @Label("Entity Id")
+    @Description("Id of the monster or tower")
+    public long entityId;
+
+    @Label("Cell")
+    @Description("Packed index of the cell, line * columns + column")
+    public int cell;
+
+    @Label("Tick")
+    @Description("Tick of the simulation when the event happened")
+    public long tick;
+}
@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a tower rotated its cannon to the cell of its target.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.TowerRotate")
+@Label("Tower Rotate")
+@Description("A tower rotated its cannon to the cell of its target.")
+public class TowerRotateEvent extends SimulationEvent {
+}
@@ -0,0 +1,16 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of when a tower shot at a cell.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.TowerShot")
+@Label("Tower Shot")
+@Description("A tower shot at a cell.")
+public class TowerShotEvent extends SimulationEvent {
+}
@@ -0,0 +1,25 @@
+package pt.ua.towerdefense.monitoring.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of when an entity was blocked in the world before a call succeeded.
+ *
+ * @author Eduardo Sousa
+ */
+@Name("pt.ua.towerdefense.WorldWait")
+@Label("World Wait")
+@Description("An entity was blocked in the world before a call succeeded.")
+public class WorldWaitEvent extends SimulationEvent {
+    @Label("Method")
+    @Description("World state method that blocked")
+    public String method;
+
+    @Label("Wait Time")
+    @Description("Time spent blocked")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitTime;
+}
@@ -0,0 +1,79 @@
+package pt.ua.towerdefense.monsters;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class that accumulates the damage inflicted on the monsters during a tick.
+ * Towers record their hits without locking, adding the damage to the entry of the
+ * monster's handle, and the first hit on a monster also appends its handle to the list
+ * of the monsters hit. At the tick boundary, the accumulated damage is applied to the
+ * monster store in a single pass over that list, so the cost of applying it depends on
+ * the monsters hit and not on the capacity of the store. The sum of the hits does not
+ * depend on the order in which they were recorded.
+ *
+ * @author Eduardo Sousa
+ */
+public class DamageBuffer {
+    /* Damage accumulated for each handle since the last time it was applied */
+    private final AtomicIntegerArray pending;
+
+    /* Handles hit since the last time the damage was applied, in the first entries */
+    private final AtomicIntegerArray hit;
+
+    /* Number of handles hit since the last time the damage was applied */
+    private final AtomicInteger hitCount;
+
+    /**
+     * Constructor for the damage buffer.
+     *
+     * @param capacity capacity of the monster store whose monsters are hit.
+     */
+    public DamageBuffer(int capacity) {
+        assert capacity > 0;
+
+        this.pending = new AtomicIntegerArray(capacity);
+        this.hit = new AtomicIntegerArray(capacity);
+        this.hitCount = new AtomicInteger();
+    }
+
+    /**
+     * Records a hit on a monster.<br>
+     * May be called concurrently, but not while the damage is applied.
+     *
+     * @param handle handle of the monster.
+     * @param damage damage inflicted.
+     */
+    public void record(int handle, int damage) {
+        assert handle >= 0 && handle < pending.length();
+        assert damage > 0;
+
+        if(pending.getAndAdd(handle, damage) == 0)
+            hit.set(hitCount.getAndIncrement(), handle);
+    }
+
+    /**
+     * Applies the damage accumulated since the last call to the monsters, and clears it.<br>
+     * Must not be called while hits are recorded, nor while the monsters hit leave the world.
+     *
+     * @param store store of the monsters hit.
+     *
+     * @return the number of monsters hit.
+     */
+    public int apply(MonsterStore store) {
+        assert store != null;
+        assert store.getCapacity() == pending.length();
+
+        int count = hitCount.get();
+
+        for(int i = 0; i < count; i++) {
+            int handle = hit.get(i);
+
+            store.damage(handle, pending.getAndSet(handle, 0));
+        }
+
+        hitCount.set(0);
+
+        return count;
+    }
+}
@@ -1,257 +1,366 @@
 package pt.ua.towerdefense.monsters;
 
-import pt.ua.concurrent.CThread;
-import pt.ua.concurrent.Metronome;
 import pt.ua.towerdefense.definitions.Direction;
-import pt.ua.towerdefense.definitions.RotationWise;
+import pt.ua.towerdefense.monitoring.EntityIds;
+import pt.ua.towerdefense.timing.Ticker;
 import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.Route;
 import pt.ua.towerdefense.world.WorldState;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * Class that represents Monsters.
+ * While the monster is in the world, its state is kept in the world's monster store,
+ * under the handle it gets when it enters the world. The monster follows a route that
+ * is computed once for the whole world, and only keeps the index of its next step.
+ * Monsters enter the world through a spawn scheduler, in the order they were enqueued in it
+ * by whoever created them, once they are fully built.
+ * The monster is only the logic of its life cycle: it runs on whatever thread an engine gives it,
+ * a platform or a virtual thread, or is ticked by an engine with no thread of its own.
  *
  * @author Eduardo Sousa
  */
-public class Monster extends CThread {
+public class Monster implements Runnable {
+    /* Id of the monster, that identifies it in the events of the simulation */
+    private final long id;
+
     /* Monster's attributes. Defines speed and health */
     private final MonsterAttributes attributes;
 
     /* World state */
     private final WorldState worldState;
 
-    /* Metronome that helps sync all threads based on time */
-    private final Metronome metronome;
+    /* Ticker that helps sync all threads based on time */
+    private final Ticker ticker;
+
+    /* Store that keeps the state of the monster while it is in the world */
+    private final MonsterStore store;
+
+    /* Route from the beginning to the end of the path */
+    private final Route route;
+
+    /* Scheduler that admits the monster into the world */
+    private final SpawnScheduler spawner;
 
-    /* Health that the monster still has */
-    private final AtomicInteger remainingHealth;
+    /* Handle of the monster in the store, NO_HANDLE while it is not in the world */
+    private volatile int handle;
 
-    /* Position where the monster is at */
-    private Position actualPosition;
+    /* True once the monster left the world */
+    private volatile boolean finished;
 
-    /* Heading of the monster */
-    private Direction direction;
+    /* True if the monster left the world by reaching the end of the path */
+    private volatile boolean reachedEnd;
 
     /**
      * Constructor for the Monsters object.
      *
      * @param attributes attributes that define the monster's characteristics.
      * @param world world where the monster is.
-     * @param metronome metronome to sync in time.
-     * @param actualPosition position where the object must start.
-     * @param direction heading of the monster.
+     * @param ticker ticker to sync in time.
+     * @param route route of the monster, that must reach the end of the path.
+     * @param spawner scheduler that admits the monster into the world, where it must be enqueued before it runs.
      */
-    public Monster(MonsterAttributes attributes, WorldState world, Metronome metronome, Position actualPosition,
-                   Direction direction) {
-        super();
-
+    public Monster(MonsterAttributes attributes, WorldState world, Ticker ticker, Route route,
+                   SpawnScheduler spawner) {
         assert attributes != null;
         assert world != null;
-        assert metronome != null;
-        assert actualPosition != null;
-        assert world.getPathBeginning().equals(actualPosition);
-        assert direction != null;
+        assert ticker != null;
+        assert route != null;
+        assert route.reachesEnd();
+        assert spawner != null;
 
+        this.id = EntityIds.next();
         this.attributes = attributes;
         this.worldState = world;
-        this.metronome = metronome;
-        this.actualPosition = actualPosition;
-        this.direction = direction;
-
-        this.remainingHealth = new AtomicInteger(this.attributes.getHealth());
+        this.ticker = ticker;
+        this.store = world.getMonsterStore();
+        this.route = route;
+        this.spawner = spawner;
+        this.handle = MonsterStore.NO_HANDLE;
+        this.finished = false;
+        this.reachedEnd = false;
+
+        this.ticker.register();
     }
 
     @Override
     public void run() {
-        System.out.println("Monster #" + getId() + " starting...");
+        System.out.println("Monster #" + id + " starting...");
 
-        worldState.addMonster(this);
+        int health = this.attributes.getHealth();
 
-        boolean left, front;
+        // a restored monster is already in the world, in the phase it was saved in
+        if(handle == MonsterStore.NO_HANDLE) {
+            if(this.ticker.allowsBlocking()) {
+                handle = spawner.admit(this, worldState, route.getInitialDirection(), health, id);
+            } else {
+                while((handle = spawner.tryAdmit(this, worldState, route.getInitialDirection(), health, id)) == MonsterStore.NO_HANDLE)
+                    this.ticker.sync();
+            }
 
-        while(remainingHealth.get() > 0 && !actualPosition.equals(worldState.getPathEnd())) {
-            left = isRoadAvailableLeft();
-            front = isRoadAvailableCenter();
+            decide();
+        }
 
-            if(front)
-                moveInFront();
-            else if(left)
-                rotate(RotationWise.ANTICLOCKWISE);
-            else
-                rotate(RotationWise.CLOCKWISE);
+        while(store.getPhase(handle) != MonsterPhase.FINISHED) {
+            this.ticker.sync();
+            cycle(this.ticker.allowsBlocking());
         }
 
-        worldState.removeMonster();
+        leave();
+        this.ticker.deregister();
 
-        if(remainingHealth.get() > 0)
-            System.out.println("Monster #" + getId() + " reached the end of the map.");
+        if(reachedEnd)
+            System.out.println("Monster #" + id + " reached the end of the map.");
         else
-            System.out.println("Monster #" + getId() + " died trying.");
+            System.out.println("Monster #" + id + " died trying.");
     }
 
     /**
-     * Checks if there is a road to the left side of the monster.
+     * Advances the monster by one cycle, without blocking.<br>
+     * Used by engines that drive every entity from a single thread instead of starting it.
+     * The first calls ask the spawn scheduler to place the monster at the beginning of the path, and the monster
+     * leaves the world in the cycle where it dies or reaches the end of the path.
      *
-     * @return true if there is a road at his left.
+     * @return true while the monster is in the world or waiting to enter it, false once it left.
      */
-    private boolean isRoadAvailableLeft() {
-        assert direction != null;
+    public boolean tick() {
+        assert !finished;
 
-        Direction dir = Direction.NORTH;
+        if(handle == MonsterStore.NO_HANDLE) {
+            handle = spawner.tryAdmit(this, worldState, route.getInitialDirection(), attributes.getHealth(), id);
 
-        switch (this.direction) {
-            case NORTH:
-                dir = Direction.WEST;
-                break;
-            case SOUTH:
-                dir = Direction.EAST;
-                break;
-            case EAST:
-                dir = Direction.NORTH;
-                break;
-            case WEST:
-                dir = Direction.SOUTH;
-                break;
+            if(handle != MonsterStore.NO_HANDLE)
+                decide();
+
+            return true;
         }
 
-        return this.worldState.isPathInDirection(dir);
+        cycle(false);
+
+        if(store.getPhase(handle) == MonsterPhase.FINISHED) {
+            leave();
+            return false;
+        }
+
+        return true;
     }
 
     /**
-     * Checks if there is a road to the front side of the monster.
+     * Places the monster in the world in the state it was saved in, instead of letting it enter through the spawn
+     * scheduler.<br>
+     * Must be called before the monster is started or ticked. The monster then resumes in the saved phase.
+     *
+     * @param cell cell of the path where the monster was.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param phase phase the monster was in.
+     * @param remainingCycles number of cycles left to complete the phase.
+     * @param routeStep index of the next step of the route.
      *
-     * @return true if there is a road at his front.
+     * @return true if the monster was placed, false if the cell is occupied.
      */
-    private boolean isRoadAvailableCenter() {
-        assert direction != null;
+    public boolean restore(int cell, Direction direction, int health, MonsterPhase phase, int remainingCycles,
+                           int routeStep) {
+        assert handle == MonsterStore.NO_HANDLE && !finished;
+        assert phase != MonsterPhase.SPAWNING && phase != MonsterPhase.FINISHED;
+        assert remainingCycles >= 0;
+        assert routeStep >= 0 && routeStep < route.getLength();
 
-        return this.worldState.isPathInDirection(this.direction);
+        int restored = worldState.placeMonster(cell, direction, health, id);
+
+        if(restored == MonsterStore.NO_HANDLE)
+            return false;
+
+        spawner.withdraw(this);
+        store.setPhase(restored, phase, remainingCycles);
+        store.setRouteStep(restored, routeStep);
+        handle = restored;
+
+        return true;
     }
 
     /**
-     * Moves the monster to the tile in front of him.<br>
-     * Blocks while the monster is moving.
+     * Getter for the phase of the monster's life cycle.
+     *
+     * @return the current phase.
      */
-    private void moveInFront() {
-        assert remainingHealth.get() > 0;
-        assert direction != null;
-        assert worldState.isPositionInPath(actualPosition);
+    public MonsterPhase getPhase() {
+        int current = handle;
 
-        int waitingCycles = this.attributes.getMoveCycles();
+        if(current != MonsterStore.NO_HANDLE)
+            return store.getPhase(current);
 
-        while (waitingCycles > 0) {
-            if(remainingHealth.get() <= 0)
-                return;
+        return finished ? MonsterPhase.FINISHED : MonsterPhase.SPAWNING;
+    }
 
-            this.metronome.sync();
-            waitingCycles--;
-        }
+    /**
+     * Getter for the id of the monster.
+     *
+     * @return a positive id, larger than the ids of the entities created before.
+     */
+    public long getId() {
+        return id;
+    }
 
-        if(remainingHealth.get() <= 0)
-            return;
+    /**
+     * Getter for the handle of the monster in the monster store.
+     *
+     * @return the handle, or NO_HANDLE while the monster is not in the world.
+     */
+    public int getHandle() {
+        return handle;
+    }
 
-        switch (direction) {
-            case NORTH:
-                this.actualPosition = new Position(this.actualPosition.getCoordinateX(), this.actualPosition.getCoordinateY() - 1);
-                break;
-            case WEST:
-                this.actualPosition = new Position(this.actualPosition.getCoordinateX() - 1, this.actualPosition.getCoordinateY());
-                break;
-            case SOUTH:
-                this.actualPosition = new Position(this.actualPosition.getCoordinateX(), this.actualPosition.getCoordinateY() + 1);
-                break;
-            case EAST:
-                this.actualPosition = new Position(this.actualPosition.getCoordinateX() + 1, this.actualPosition.getCoordinateY());
-                break;
-        }
+    /**
+     * Getter for the cell where the monster is.
+     *
+     * @return the packed index of the cell, or NO_CELL while the monster is not in the world.
+     */
+    public int getCell() {
+        int current = handle;
+
+        if(current == MonsterStore.NO_HANDLE)
+            return WorldState.NO_CELL;
+
+        return worldState.cellOf(store.getCoordinateX(current), store.getCoordinateY(current));
+    }
+
+    /**
+     * Getter for the cell the monster tries to enter in its next cycle.<br>
+     * Lets engines that advance monsters in parallel find the moves that leave a region of the world.
+     *
+     * @return the packed index of the cell, or NO_CELL if the monster does not try to move in its next cycle.
+     */
+    public int getNextMove() {
+        int current = handle;
 
-        worldState.moveMonster();
+        if(current == MonsterStore.NO_HANDLE || store.getHealth(current) <= 0 ||
+                store.getPhase(current) != MonsterPhase.MOVING || store.getRemainingCycles(current) > 1)
+            return WorldState.NO_CELL;
 
-        assert worldState.isPositionInPath(actualPosition);
+        return route.getCell(store.getRouteStep(current));
     }
 
     /**
-     * Rotates the monster to the desired heading.<br>
-     * Blocks while rotating.
+     * Checks if the monster is still in the world or waiting to enter it.
      *
-     * @param rotation rotation direction (clockwise or counterclockwise).
+     * @return true if the monster did not die nor reach the end of the path.
      */
-    private void rotate(RotationWise rotation) {
-        assert remainingHealth.get() > 0;
-        assert direction != null;
+    public boolean isActive() {
+        return !finished;
+    }
 
-        int waitingCycles = this.attributes.getRotateCycles();
+    /**
+     * Checks if the monster reached the end of the path alive.
+     *
+     * @return true if the monster reached the end of the path.
+     */
+    public boolean hasReachedEnd() {
+        return finished && reachedEnd;
+    }
 
-        while (waitingCycles > 0) {
-            if(remainingHealth.get() <= 0)
-                return;
+    /**
+     * Advances the current phase by one cycle and completes it when its cycles run out.
+     *
+     * @param blocking true if the monster may block waiting for the cell in front of it.
+     */
+    private void cycle(boolean blocking) {
+        assert store.getPhase(handle) != MonsterPhase.SPAWNING && store.getPhase(handle) != MonsterPhase.FINISHED;
 
-            this.metronome.sync();
-            waitingCycles--;
+        if(store.getHealth(handle) <= 0) {
+            store.setPhase(handle, MonsterPhase.FINISHED, 0);
+            return;
         }
 
-        if(remainingHealth.get() <= 0)
+        int remainingCycles = store.getRemainingCycles(handle);
+
+        if(remainingCycles > 0)
+            store.setRemainingCycles(handle, --remainingCycles);
+
+        if(remainingCycles > 0)
             return;
 
-        if (rotation == RotationWise.CLOCKWISE) {
-            switch (this.direction) {
-                case NORTH:
-                    this.direction = Direction.EAST;
-                    break;
-                case WEST:
-                    this.direction = Direction.NORTH;
-                    break;
-                case SOUTH:
-                    this.direction = Direction.WEST;
-                    break;
-                case EAST:
-                    this.direction = Direction.SOUTH;
-                    break;
-            }
-        } else if (rotation == RotationWise.ANTICLOCKWISE) {
-            switch (this.direction) {
-                case NORTH:
-                    this.direction = Direction.WEST;
-                    break;
-                case WEST:
-                    this.direction = Direction.SOUTH;
-                    break;
-                case SOUTH:
-                    this.direction = Direction.EAST;
-                    break;
-                case EAST:
-                    this.direction = Direction.NORTH;
-                    break;
-            }
+        int step = store.getRouteStep(handle);
+
+        switch (store.getPhase(handle)) {
+            case MOVING:
+                if(!moveTo(route.getCell(step), blocking))
+                    return;
+                break;
+            case ROTATING_CLOCKWISE:
+            case ROTATING_ANTICLOCKWISE:
+                store.setDirection(handle, route.getDirection(step));
+                worldState.getListener().monsterRotated(id,
+                        worldState.cellOf(store.getCoordinateX(handle), store.getCoordinateY(handle)));
+                break;
+            default:
+                assert false;
+        }
+
+        store.setRouteStep(handle, step + 1);
+        decide();
+    }
+
+    /**
+     * Chooses the next phase, from the next step of the route.
+     */
+    private void decide() {
+        int step = store.getRouteStep(handle);
+
+        if(store.getHealth(handle) <= 0 || step == route.getLength()) {
+            store.setPhase(handle, MonsterPhase.FINISHED, 0);
+        } else if(route.getPhase(step) == MonsterPhase.MOVING) {
+            store.setPhase(handle, MonsterPhase.MOVING, this.attributes.getMoveCycles());
+        } else {
+            store.setPhase(handle, route.getPhase(step), this.attributes.getRotateCycles());
         }
+    }
+
+    /**
+     * Removes the monster from the world, remembering how it left.
+     */
+    private void leave() {
+        assert store.getPhase(handle) == MonsterPhase.FINISHED;
+
+        reachedEnd = store.getHealth(handle) > 0;
+        finished = true;
 
-        assert direction != null;
+        worldState.removeMonster(handle);
+        handle = MonsterStore.NO_HANDLE;
     }
 
     /**
-     * Function to decrease the amount of health of a monster when it is shot by a tower.
+     * Moves the monster to the next cell of the route.
+     *
+     * @param cell cell in front of the monster.
+     * @param blocking true to block while the cell is occupied, false to give up instead.
      *
-     * @param damage damage inflicted by the shot.
+     * @return true if the monster moved.
      */
-    public synchronized void gotShot(int damage) {
-        assert damage > 0;
-        assert remainingHealth.get() > 0;
+    private boolean moveTo(int cell, boolean blocking) {
+        assert store.getHealth(handle) > 0;
+        assert worldState.isPositionInPath(getActualPosition());
 
-        int remaining = remainingHealth.get() - damage;
-        this.remainingHealth.set(remaining > 0 ? remaining : 0);
+        if(blocking)
+            worldState.moveMonster(handle, cell);
+        else if(!worldState.tryMoveMonster(handle, cell))
+            return false;
 
-        assert remainingHealth.get() >= 0;
+        assert worldState.isPositionInPath(getActualPosition());
+
+        return true;
     }
 
     /**
-     * Synchronized getter for actual position.
+     * Getter for actual position.
      *
-     * @return the position where it is.
+     * @return the position where it is, the beginning of the path while it waits to enter the world.
      */
-    public synchronized Position getActualPosition() {
-        assert actualPosition != null;
+    public Position getActualPosition() {
+        int current = handle;
+
+        if(current == MonsterStore.NO_HANDLE)
+            return worldState.getPathBeginning();
 
-        return this.actualPosition;
+        return new Position(store.getCoordinateX(current), store.getCoordinateY(current));
     }
 }
@@ -0,0 +1,33 @@
+package pt.ua.towerdefense.monsters;
+
+/**
+ * Enum that represents the phases of the life cycle of a monster.
+ *
+ * @author Eduardo Sousa
+ */
+public enum MonsterPhase {
+    /**
+     * Waiting to enter the beginning of the path.
+     */
+    SPAWNING,
+
+    /**
+     * Moving to the cell in front.
+     */
+    MOVING,
+
+    /**
+     * Rotating clockwise.
+     */
+    ROTATING_CLOCKWISE,
+
+    /**
+     * Rotating counterclockwise.
+     */
+    ROTATING_ANTICLOCKWISE,
+
+    /**
+     * Dead or at the end of the path.
+     */
+    FINISHED
+}
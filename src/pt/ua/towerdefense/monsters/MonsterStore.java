@@ -0,0 +1,407 @@
+package pt.ua.towerdefense.monsters;
+
+import pt.ua.towerdefense.definitions.Direction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class that stores the state of the monsters that are in the world in parallel primitive arrays.
+ * Each monster is identified by an integer handle, that stays the same while it is in the world
+ * and is reused by another monster after it leaves.<br>
+ * Handles are allocated and released by the world state, that may do it from several regions
+ * of the map at once, so the stack of free handles is guarded by a lock of its own. The position is
+ * only changed by the world state, and the remaining fields of a handle only by the monster that
+ * owns it, except for the health, which is updated atomically because towers shoot concurrently.
+ *
+ * @author Eduardo Sousa
+ */
+public class MonsterStore {
+    /**
+     * Value that represents the absence of a monster.
+     */
+    public static final int NO_HANDLE = -1;
+
+    /* Access to the elements of the health array with atomic operations */
+    private static final VarHandle HEALTH = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /* Directions indexed by their ordinal */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /* Phases indexed by their ordinal */
+    private static final MonsterPhase[] PHASES = MonsterPhase.values();
+
+    /* Id of each monster */
+    private final long[] entity;
+
+    /* Coordinate in the XX axis of each monster */
+    private final int[] coordinateX;
+
+    /* Coordinate in the YY axis of each monster */
+    private final int[] coordinateY;
+
+    /* Ordinal of the heading of each monster */
+    private final byte[] direction;
+
+    /* Health that each monster still has */
+    private final int[] health;
+
+    /* Ordinal of the phase of each monster */
+    private final byte[] phase;
+
+    /* Number of cycles left to complete the phase of each monster */
+    private final int[] remainingCycles;
+
+    /* Index of the next step of the route of each monster */
+    private final int[] routeStep;
+
+    /* True for the handles in use */
+    private final boolean[] allocated;
+
+    /* Handles that are free, used as a stack */
+    private final int[] freeHandles;
+
+    /* Number of free handles in the stack, guarded by the handle lock */
+    private volatile int freeCount;
+
+    /* Lock that guards the stack of free handles */
+    private final ReentrantLock handleLock;
+
+    /**
+     * Constructor for the monster store.
+     *
+     * @param capacity maximum number of monsters in the world at the same time.
+     */
+    public MonsterStore(int capacity) {
+        assert capacity > 0;
+
+        this.entity = new long[capacity];
+        this.coordinateX = new int[capacity];
+        this.coordinateY = new int[capacity];
+        this.direction = new byte[capacity];
+        this.health = new int[capacity];
+        this.phase = new byte[capacity];
+        this.remainingCycles = new int[capacity];
+        this.routeStep = new int[capacity];
+        this.allocated = new boolean[capacity];
+        this.freeHandles = new int[capacity];
+
+        for(int i = 0; i < capacity; i++)
+            this.freeHandles[i] = capacity - 1 - i;
+
+        this.freeCount = capacity;
+        this.handleLock = new ReentrantLock();
+    }
+
+    /**
+     * Allocates a handle for a monster that enters the world.
+     *
+     * @param coordinateX coordinate in the XX axis where the monster is.
+     * @param coordinateY coordinate in the YY axis where the monster is.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster.
+     */
+    public int allocate(int coordinateX, int coordinateY, Direction direction, int health, long id) {
+        assert direction != null;
+        assert health > 0;
+
+        int handle;
+
+        handleLock.lock();
+
+        try {
+            assert freeCount > 0;
+
+            handle = freeHandles[--freeCount];
+        } finally {
+            handleLock.unlock();
+        }
+
+        this.allocated[handle] = true;
+        this.entity[handle] = id;
+        this.coordinateX[handle] = coordinateX;
+        this.coordinateY[handle] = coordinateY;
+        this.direction[handle] = (byte) direction.ordinal();
+        this.phase[handle] = (byte) MonsterPhase.SPAWNING.ordinal();
+        this.remainingCycles[handle] = 0;
+        this.routeStep[handle] = 0;
+        HEALTH.setVolatile(this.health, handle, health);
+
+        assert isAllocated(handle);
+
+        return handle;
+    }
+
+    /**
+     * Releases the handle of a monster that left the world, so that it can be reused.
+     *
+     * @param handle handle of the monster.
+     */
+    public void release(int handle) {
+        assert isAllocated(handle);
+
+        this.allocated[handle] = false;
+
+        // once pushed, the handle may be allocated again by another region
+        assert !isAllocated(handle);
+
+        handleLock.lock();
+
+        try {
+            this.freeHandles[freeCount++] = handle;
+        } finally {
+            handleLock.unlock();
+        }
+    }
+
+    /**
+     * Releases every handle, so that the handles are allocated again in the order of a new store.<br>
+     * Must not be called while any handle is being used.
+     */
+    public void clear() {
+        handleLock.lock();
+
+        try {
+            Arrays.fill(this.allocated, false);
+
+            for(int i = 0; i < freeHandles.length; i++)
+                this.freeHandles[i] = freeHandles.length - 1 - i;
+
+            this.freeCount = freeHandles.length;
+        } finally {
+            handleLock.unlock();
+        }
+
+        assert size() == 0;
+    }
+
+    /**
+     * Checks if a handle is in use.
+     *
+     * @param handle handle to be checked.
+     *
+     * @return true if the handle belongs to a monster in the world.
+     */
+    public boolean isAllocated(int handle) {
+        return handle >= 0 && handle < allocated.length && allocated[handle];
+    }
+
+    /**
+     * Getter for the maximum number of monsters.
+     *
+     * @return a positive integer, every handle is smaller than it.
+     */
+    public int getCapacity() {
+        return allocated.length;
+    }
+
+    /**
+     * Getter for the number of monsters in the world.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int size() {
+        return allocated.length - freeCount;
+    }
+
+    /**
+     * Getter for the id of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return the id of the monster.
+     */
+    public long getEntityId(int handle) {
+        assert isAllocated(handle);
+
+        return entity[handle];
+    }
+
+    /**
+     * Getter for the coordinate in the XX axis of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return coordinate in the XX axis.
+     */
+    public int getCoordinateX(int handle) {
+        assert isAllocated(handle);
+
+        return coordinateX[handle];
+    }
+
+    /**
+     * Getter for the coordinate in the YY axis of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return coordinate in the YY axis.
+     */
+    public int getCoordinateY(int handle) {
+        assert isAllocated(handle);
+
+        return coordinateY[handle];
+    }
+
+    /**
+     * Setter for the position of a monster.
+     *
+     * @param handle handle of the monster.
+     * @param coordinateX coordinate in the XX axis.
+     * @param coordinateY coordinate in the YY axis.
+     */
+    public void setPosition(int handle, int coordinateX, int coordinateY) {
+        assert isAllocated(handle);
+
+        this.coordinateX[handle] = coordinateX;
+        this.coordinateY[handle] = coordinateY;
+    }
+
+    /**
+     * Getter for the heading of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return the heading of the monster.
+     */
+    public Direction getDirection(int handle) {
+        assert isAllocated(handle);
+
+        return DIRECTIONS[direction[handle]];
+    }
+
+    /**
+     * Setter for the heading of a monster.
+     *
+     * @param handle handle of the monster.
+     * @param direction the new heading.
+     */
+    public void setDirection(int handle, Direction direction) {
+        assert isAllocated(handle);
+        assert direction != null;
+
+        this.direction[handle] = (byte) direction.ordinal();
+    }
+
+    /**
+     * Getter for the health that a monster still has.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return a non negative health.
+     */
+    public int getHealth(int handle) {
+        assert isAllocated(handle);
+
+        return (int) HEALTH.getVolatile(health, handle);
+    }
+
+    /**
+     * Decreases the health of a monster atomically, without going below zero.
+     *
+     * @param handle handle of the monster.
+     * @param damage damage inflicted.
+     *
+     * @return the health that the monster still has.
+     */
+    public int damage(int handle, int damage) {
+        assert isAllocated(handle);
+        assert damage > 0;
+
+        int current;
+        int remaining;
+
+        do {
+            current = (int) HEALTH.getVolatile(health, handle);
+            remaining = current > damage ? current - damage : 0;
+        } while (current > 0 && !HEALTH.compareAndSet(health, handle, current, remaining));
+
+        return current > 0 ? remaining : 0;
+    }
+
+    /**
+     * Getter for the phase of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return the phase of the monster.
+     */
+    public MonsterPhase getPhase(int handle) {
+        assert isAllocated(handle);
+
+        return PHASES[phase[handle]];
+    }
+
+    /**
+     * Getter for the number of cycles left to complete the phase of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return a non negative number of cycles.
+     */
+    public int getRemainingCycles(int handle) {
+        assert isAllocated(handle);
+
+        return remainingCycles[handle];
+    }
+
+    /**
+     * Setter for the phase of a monster and the number of cycles it takes.
+     *
+     * @param handle handle of the monster.
+     * @param phase the new phase.
+     * @param cycles number of cycles to complete the phase.
+     */
+    public void setPhase(int handle, MonsterPhase phase, int cycles) {
+        assert isAllocated(handle);
+        assert phase != null;
+        assert cycles >= 0;
+
+        this.phase[handle] = (byte) phase.ordinal();
+        this.remainingCycles[handle] = cycles;
+    }
+
+    /**
+     * Setter for the number of cycles left to complete the phase of a monster.
+     *
+     * @param handle handle of the monster.
+     * @param cycles number of cycles left.
+     */
+    public void setRemainingCycles(int handle, int cycles) {
+        assert isAllocated(handle);
+        assert cycles >= 0;
+
+        this.remainingCycles[handle] = cycles;
+    }
+
+    /**
+     * Getter for the index of the next step of the route of a monster.
+     *
+     * @param handle handle of the monster.
+     *
+     * @return a non negative index.
+     */
+    public int getRouteStep(int handle) {
+        assert isAllocated(handle);
+
+        return routeStep[handle];
+    }
+
+    /**
+     * Setter for the index of the next step of the route of a monster.
+     *
+     * @param handle handle of the monster.
+     * @param step index of the next step.
+     */
+    public void setRouteStep(int handle, int step) {
+        assert isAllocated(handle);
+        assert step >= 0;
+
+        this.routeStep[handle] = step;
+    }
+}
@@ -0,0 +1,241 @@
+package pt.ua.towerdefense.monsters;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.timing.Ticker;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class that admits monsters into the beginning of the path, in the order they were enqueued.
+ * Monsters are admitted in waves: up to waveSize monsters enter the world as soon as the
+ * beginning of the path is free, and the next wave starts waveInterval ticks after the
+ * first monster of the previous one entered. Waves of a single monster admit monsters at a
+ * fixed rate, and an interval of zero admits them as fast as the beginning of the path frees.<br>
+ * Only the monster at the head of the queue tries to enter the world. The others are parked
+ * on the scheduler, and each one is unparked by its predecessor once it entered the world,
+ * so that the monsters waiting to enter never wait on the world itself.
+ *
+ * @author Eduardo Sousa
+ */
+public class SpawnScheduler {
+    /* Ticker that counts the ticks between waves */
+    private final Ticker ticker;
+
+    /* Maximum number of monsters of each wave */
+    private final int waveSize;
+
+    /* Number of ticks from the start of a wave to the start of the next */
+    private final long waveInterval;
+
+    /* Monsters waiting to enter the world, in order */
+    private final Queue<Object> queue;
+
+    /* Threads parked while their monster is not at the head of the queue */
+    private final Map<Object, Thread> parked;
+
+    /* Tick when the current wave started, only changed by the head of the queue */
+    private volatile long waveStart;
+
+    /* Number of monsters admitted in the current wave, only changed by the head of the queue */
+    private volatile int admittedInWave;
+
+    /* Tick from when the next wave may start, only changed by the head of the queue */
+    private volatile long nextWave;
+
+    /**
+     * Constructor for the spawn scheduler.
+     *
+     * @param ticker ticker that counts the ticks between waves.
+     * @param waveSize maximum number of monsters of each wave.
+     * @param waveInterval number of ticks from the start of a wave to the start of the next.
+     */
+    public SpawnScheduler(Ticker ticker, int waveSize, long waveInterval) {
+        assert ticker != null;
+        assert waveSize > 0;
+        assert waveInterval >= 0;
+
+        this.ticker = ticker;
+        this.waveSize = waveSize;
+        this.waveInterval = waveInterval;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.parked = new ConcurrentHashMap<>();
+        this.waveStart = 0;
+        this.admittedInWave = 0;
+        this.nextWave = 0;
+    }
+
+    /**
+     * Adds a monster to the end of the queue.
+     *
+     * @param monster monster that waits to enter the world, not yet enqueued.
+     */
+    public void enqueue(Object monster) {
+        assert monster != null;
+
+        queue.add(monster);
+    }
+
+    /**
+     * Removes a monster that has not entered the world yet from the queue, when it is placed in the world
+     * by other means, such as the restore of a saved world.<br>
+     * Must be called before any monster tries to enter the world.
+     *
+     * @param monster monster to be removed, already enqueued.
+     */
+    public void withdraw(Object monster) {
+        assert monster != null;
+        assert parked.isEmpty();
+
+        boolean removed = queue.remove(monster);
+
+        assert removed;
+    }
+
+    /**
+     * Admits a monster into the world.<br>
+     * Parks the calling thread until the monster reaches the head of the queue, then waits
+     * for its wave to start and blocks in the world while the beginning of the path is occupied.
+     *
+     * @param monster monster that waits to enter the world, already enqueued.
+     * @param world world where the monster enters.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster in the monster store.
+     */
+    public int admit(Object monster, WorldState world, Direction direction, int health, long id) {
+        assert monster != null;
+        assert world != null;
+
+        while (queue.peek() != monster) {
+            parked.put(monster, Thread.currentThread());
+
+            // the predecessor may have left the queue before this thread was published
+            if(queue.peek() != monster)
+                LockSupport.park(this);
+
+            parked.remove(monster);
+        }
+
+        while (!isWaveOpen())
+            ticker.sync();
+
+        int handle = world.addMonster(direction, health, id);
+
+        admitted();
+
+        return handle;
+    }
+
+    /**
+     * Tries to admit a monster into the world, without blocking.
+     *
+     * @param monster monster that waits to enter the world, already enqueued.
+     * @param world world where the monster enters.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster in the monster store, or NO_HANDLE if it is not its turn,
+     * its wave did not start yet or the beginning of the path is occupied.
+     */
+    public int tryAdmit(Object monster, WorldState world, Direction direction, int health, long id) {
+        assert monster != null;
+        assert world != null;
+
+        if(queue.peek() != monster || !isWaveOpen())
+            return MonsterStore.NO_HANDLE;
+
+        int handle = world.tryAddMonster(direction, health, id);
+
+        if(handle != MonsterStore.NO_HANDLE)
+            admitted();
+
+        return handle;
+    }
+
+    /**
+     * Getter for the number of monsters waiting to enter the world.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getWaiting() {
+        return queue.size();
+    }
+
+    /**
+     * Getter for the tick when the current wave started.
+     *
+     * @return a tick of the ticker of the scheduler.
+     */
+    public long getWaveStart() {
+        return waveStart;
+    }
+
+    /**
+     * Getter for the number of monsters admitted in the current wave.
+     *
+     * @return a number of monsters less than the wave size.
+     */
+    public int getAdmittedInWave() {
+        return admittedInWave;
+    }
+
+    /**
+     * Getter for the tick from when the next wave may start.
+     *
+     * @return a tick of the ticker of the scheduler.
+     */
+    public long getNextWave() {
+        return nextWave;
+    }
+
+    /**
+     * Restores the state of the current wave, when a saved world is restored.<br>
+     * Must be called before any monster tries to enter the world.
+     *
+     * @param waveStart tick when the current wave started.
+     * @param admittedInWave number of monsters admitted in the current wave.
+     * @param nextWave tick from when the next wave may start.
+     */
+    public void restoreWave(long waveStart, int admittedInWave, long nextWave) {
+        assert admittedInWave >= 0 && admittedInWave < waveSize;
+
+        this.waveStart = waveStart;
+        this.admittedInWave = admittedInWave;
+        this.nextWave = nextWave;
+    }
+
+    /* Checks if the head of the queue may enter the world in the current tick */
+    private boolean isWaveOpen() {
+        return admittedInWave > 0 || ticker.getTick() >= nextWave;
+    }
+
+    /* Removes the head of the queue after it entered the world, and wakes up the next one */
+    private void admitted() {
+        if(admittedInWave == 0)
+            waveStart = ticker.getTick();
+
+        if(++admittedInWave == waveSize) {
+            admittedInWave = 0;
+            nextWave = waveStart + waveInterval;
+        }
+
+        queue.poll();
+
+        Object next = queue.peek();
+
+        if(next != null) {
+            Thread thread = parked.get(next);
+
+            if(thread != null)
+                LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package pt.ua.towerdefense.recording;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.monsters.SpawnScheduler;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.timing.Ticker;
+import pt.ua.towerdefense.towers.Tower;
+import pt.ua.towerdefense.towers.TowerPhase;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Class that keeps the state of a world between two ticks, so that a run can be resumed later.
+ * The state is the tick, the outcome so far, the wave of the spawn scheduler and the number of
+ * monsters waiting to enter the world, the location, heading, health, phase and route step of
+ * the monsters in the world, in the order they entered it, and the phase and aim of the towers,
+ * in the order of the map. Restored monsters and towers resume in the phase they were saved in.<br>
+ * The file starts with the magic number and the format version, followed by every value as a
+ * varint, the cells of the monsters as the zigzag difference to the cell of the previous one,
+ * so that a monster takes about six bytes and a tower four. It is written to a sibling file
+ * first, and then moved over the previous checkpoint, so that a crash never leaves it half written.
+ *
+ * @author Eduardo Sousa
+ */
+public class Checkpoint {
+    /**
+     * Magic number at the beginning of every checkpoint, "TDCK" in ASCII.
+     */
+    public static final int MAGIC = 0x5444434B;
+
+    /**
+     * Version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    /* Maximum number of bytes of the header, the counts and the wave */
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + 12 * 10;
+
+    /* Maximum number of bytes of a monster */
+    private static final int MONSTER_SIZE = 1 + 4 * 5;
+
+    /* Maximum number of bytes of a tower */
+    private static final int TOWER_SIZE = 1 + 3 * 5;
+
+    /* Number of columns of the map */
+    private final int numberOfColumns;
+
+    /* Number of lines of the map */
+    private final int numberOfLines;
+
+    /* Number of ticks run */
+    private final long tick;
+
+    /* Number of monsters that died */
+    private final int kills;
+
+    /* Number of monsters that reached the end of the path */
+    private final int leaks;
+
+    /* Number of monsters waiting to enter the world */
+    private final int waiting;
+
+    /* Tick when the current wave of the spawn scheduler started */
+    private final long waveStart;
+
+    /* Number of monsters admitted in the current wave */
+    private final int admittedInWave;
+
+    /* Tick from when the next wave may start */
+    private final long nextWave;
+
+    /* Cell of each monster in the world, in the order they entered it */
+    private final int[] monsterCells;
+
+    /* Heading of each monster */
+    private final Direction[] monsterDirections;
+
+    /* Health of each monster */
+    private final int[] monsterHealth;
+
+    /* Phase of each monster */
+    private final MonsterPhase[] monsterPhases;
+
+    /* Number of cycles left to complete the phase of each monster */
+    private final int[] monsterCycles;
+
+    /* Index of the next step of the route of each monster */
+    private final int[] monsterSteps;
+
+    /* Phase of each tower, in the order of the map */
+    private final TowerPhase[] towerPhases;
+
+    /* Number of cycles left to complete the phase of each tower */
+    private final int[] towerCycles;
+
+    /* Cell the cannon of each tower points to */
+    private final int[] towerAims;
+
+    /* Cell each tower is going to shoot at */
+    private final int[] towerTargets;
+
+    private Checkpoint(int numberOfColumns, int numberOfLines, long tick, int kills, int leaks, int waiting,
+                       long waveStart, int admittedInWave, long nextWave, int monsters, int towers) {
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfLines = numberOfLines;
+        this.tick = tick;
+        this.kills = kills;
+        this.leaks = leaks;
+        this.waiting = waiting;
+        this.waveStart = waveStart;
+        this.admittedInWave = admittedInWave;
+        this.nextWave = nextWave;
+        this.monsterCells = new int[monsters];
+        this.monsterDirections = new Direction[monsters];
+        this.monsterHealth = new int[monsters];
+        this.monsterPhases = new MonsterPhase[monsters];
+        this.monsterCycles = new int[monsters];
+        this.monsterSteps = new int[monsters];
+        this.towerPhases = new TowerPhase[towers];
+        this.towerCycles = new int[towers];
+        this.towerAims = new int[towers];
+        this.towerTargets = new int[towers];
+    }
+
+    /**
+     * Saves the state of a world.<br>
+     * Must be called between two ticks, while no monster nor tower is running.
+     *
+     * @param worldState world that is saved.
+     * @param tick number of ticks run.
+     * @param kills number of monsters that died.
+     * @param leaks number of monsters that reached the end of the path.
+     * @param active monsters in the world, in the order they entered it.
+     * @param spawner scheduler where the other monsters wait to enter the world.
+     * @param towers towers of the world, in the order of the map.
+     *
+     * @return the checkpoint of the world.
+     */
+    public static Checkpoint capture(WorldState worldState, long tick, int kills, int leaks, List<Monster> active,
+                                     SpawnScheduler spawner, List<Tower> towers) {
+        assert worldState != null;
+        assert tick >= 0 && kills >= 0 && leaks >= 0;
+        assert active != null;
+        assert spawner != null;
+        assert towers != null;
+
+        Checkpoint checkpoint = new Checkpoint(worldState.getNumberOfColumns(), worldState.getNumberOfLines(), tick,
+                kills, leaks, spawner.getWaiting(), spawner.getWaveStart(), spawner.getAdmittedInWave(),
+                spawner.getNextWave(), active.size(), towers.size());
+        MonsterStore store = worldState.getMonsterStore();
+
+        for(int i = 0; i < active.size(); i++) {
+            int handle = active.get(i).getHandle();
+
+            assert handle != MonsterStore.NO_HANDLE;
+
+            checkpoint.monsterCells[i] = active.get(i).getCell();
+            checkpoint.monsterDirections[i] = store.getDirection(handle);
+            checkpoint.monsterHealth[i] = store.getHealth(handle);
+            checkpoint.monsterPhases[i] = store.getPhase(handle);
+            checkpoint.monsterCycles[i] = store.getRemainingCycles(handle);
+            checkpoint.monsterSteps[i] = store.getRouteStep(handle);
+        }
+
+        for(int i = 0; i < towers.size(); i++) {
+            Tower tower = towers.get(i);
+
+            checkpoint.towerPhases[i] = tower.getPhase();
+            checkpoint.towerCycles[i] = tower.getRemainingCycles();
+            checkpoint.towerAims[i] = tower.getAimingCell();
+            checkpoint.towerTargets[i] = tower.getTarget();
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Writes the checkpoint to a file, replacing it if it exists.
+     *
+     * @param file path of the checkpoint file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        assert file != null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + monsterCells.length * MONSTER_SIZE +
+                towerPhases.length * TOWER_SIZE);
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        EventLog.putVarLong(buffer, numberOfColumns);
+        EventLog.putVarLong(buffer, numberOfLines);
+        EventLog.putVarLong(buffer, tick);
+        EventLog.putVarLong(buffer, kills);
+        EventLog.putVarLong(buffer, leaks);
+        EventLog.putVarLong(buffer, waiting);
+        EventLog.putVarLong(buffer, EventLog.zigzag(waveStart));
+        EventLog.putVarLong(buffer, admittedInWave);
+        EventLog.putVarLong(buffer, EventLog.zigzag(nextWave));
+        EventLog.putVarLong(buffer, monsterCells.length);
+        EventLog.putVarLong(buffer, towerPhases.length);
+
+        int previousCell = 0;
+
+        for(int i = 0; i < monsterCells.length; i++) {
+            EventLog.putVarLong(buffer, EventLog.zigzag(monsterCells[i] - previousCell));
+            buffer.put((byte) (monsterDirections[i].ordinal() << 4 | monsterPhases[i].ordinal()));
+            EventLog.putVarLong(buffer, monsterHealth[i]);
+            EventLog.putVarLong(buffer, monsterCycles[i]);
+            EventLog.putVarLong(buffer, monsterSteps[i]);
+            previousCell = monsterCells[i];
+        }
+
+        for(int i = 0; i < towerPhases.length; i++) {
+            buffer.put((byte) towerPhases[i].ordinal());
+            EventLog.putVarLong(buffer, EventLog.zigzag(towerCycles[i]));
+            EventLog.putVarLong(buffer, towerAims[i] + 1L);
+            EventLog.putVarLong(buffer, towerTargets[i] + 1L);
+        }
+
+        buffer.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file path of the checkpoint file.
+     *
+     * @return the checkpoint read.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidLogException if the file is not a valid checkpoint.
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        assert file != null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if(size > Integer.MAX_VALUE)
+                throw new InvalidLogException("Checkpoint must be smaller than 2 GB.");
+
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Reads a checkpoint from the bytes of a checkpoint file.
+     *
+     * @param buffer contents of the file, read from its position up to the limit.
+     *
+     * @return the checkpoint read.
+     *
+     * @throws InvalidLogException if the contents are not a valid checkpoint.
+     */
+    public static Checkpoint read(ByteBuffer buffer) throws InvalidLogException {
+        assert buffer != null;
+
+        if(buffer.remaining() < Integer.BYTES + 1 || buffer.getInt() != MAGIC)
+            throw new InvalidLogException("File is not a checkpoint.");
+
+        if(buffer.get() != VERSION)
+            throw new InvalidLogException("Checkpoint was written by an unsupported version.");
+
+        int numberOfColumns = readInt(buffer);
+        int numberOfLines = readInt(buffer);
+        long tick = EventLog.getVarLong(buffer);
+        int kills = readInt(buffer);
+        int leaks = readInt(buffer);
+        int waiting = readInt(buffer);
+        long waveStart = EventLog.unzigzag(EventLog.getVarLong(buffer));
+        int admittedInWave = readInt(buffer);
+        long nextWave = EventLog.unzigzag(EventLog.getVarLong(buffer));
+        int monsters = readInt(buffer);
+        int towers = readInt(buffer);
+
+        // each monster and tower takes at least four bytes, which bounds the arrays by the size of the file
+        if(tick < 0 || monsters > buffer.remaining() / 4 || towers > buffer.remaining() / 4)
+            throw new InvalidLogException("Checkpoint is corrupted.");
+
+        Checkpoint checkpoint = new Checkpoint(numberOfColumns, numberOfLines, tick, kills, leaks, waiting,
+                waveStart, admittedInWave, nextWave, monsters, towers);
+        long cell = 0;
+
+        for(int i = 0; i < monsters; i++) {
+            cell += EventLog.unzigzag(EventLog.getVarLong(buffer));
+
+            if(!buffer.hasRemaining())
+                throw new InvalidLogException("File ends in the middle of a record.");
+
+            int state = buffer.get() & 0xFF;
+
+            if(cell < 0 || cell >= (long) numberOfColumns * numberOfLines ||
+                    state >> 4 >= Direction.values().length || (state & 0xF) >= MonsterPhase.values().length)
+                throw new InvalidLogException("Checkpoint is corrupted.");
+
+            checkpoint.monsterCells[i] = (int) cell;
+            checkpoint.monsterDirections[i] = Direction.values()[state >> 4];
+            checkpoint.monsterPhases[i] = MonsterPhase.values()[state & 0xF];
+            checkpoint.monsterHealth[i] = readInt(buffer);
+            checkpoint.monsterCycles[i] = readInt(buffer);
+            checkpoint.monsterSteps[i] = readInt(buffer);
+
+            if(checkpoint.monsterHealth[i] == 0 || checkpoint.monsterPhases[i] == MonsterPhase.SPAWNING ||
+                    checkpoint.monsterPhases[i] == MonsterPhase.FINISHED)
+                throw new InvalidLogException("Checkpoint is corrupted.");
+        }
+
+        for(int i = 0; i < towers; i++) {
+            if(!buffer.hasRemaining())
+                throw new InvalidLogException("File ends in the middle of a record.");
+
+            int phase = buffer.get() & 0xFF;
+
+            if(phase >= TowerPhase.values().length)
+                throw new InvalidLogException("Checkpoint is corrupted.");
+
+            checkpoint.towerPhases[i] = TowerPhase.values()[phase];
+            long cycles = EventLog.unzigzag(EventLog.getVarLong(buffer));
+
+            if(cycles < 0 || cycles > Integer.MAX_VALUE)
+                throw new InvalidLogException("Checkpoint is corrupted.");
+
+            checkpoint.towerCycles[i] = (int) cycles;
+            checkpoint.towerAims[i] = readInt(buffer) - 1;
+            checkpoint.towerTargets[i] = readInt(buffer) - 1;
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Puts a world back in the saved state.<br>
+     * The world must have been built from the map of the saved run, and have no monsters. The monsters
+     * must have been created in order and enqueued in the scheduler, and neither monsters nor towers
+     * may have been started or ticked. The first monsters are placed in the world, and the others are
+     * left waiting to enter it. A step ticker is advanced to the saved tick, and the waves of the
+     * scheduler are shifted to the tick of any other ticker. The whole checkpoint is checked against
+     * the world and the route before any monster or tower is changed.
+     *
+     * @param worldState world where the state is restored.
+     * @param route route followed by the monsters.
+     * @param ticker ticker of the world.
+     * @param monsters as many monsters as getNumberOfMonsters returns.
+     * @param spawner scheduler where the monsters were enqueued.
+     * @param towers towers of the world, in the order of the map.
+     *
+     * @throws InvalidLogException if the checkpoint does not match the world.
+     */
+    public void restore(WorldState worldState, Route route, Ticker ticker, List<Monster> monsters,
+                        SpawnScheduler spawner, List<Tower> towers) throws InvalidLogException {
+        assert worldState != null;
+        assert route != null;
+        assert ticker != null;
+        assert monsters != null && monsters.size() == getNumberOfMonsters();
+        assert spawner != null;
+        assert towers != null;
+
+        if(numberOfColumns != worldState.getNumberOfColumns() || numberOfLines != worldState.getNumberOfLines() ||
+                towerPhases.length != towers.size())
+            throw new InvalidLogException("Checkpoint was saved on a different map.");
+
+        for(int i = 0; i < towerPhases.length; i++) {
+            if(!isValidAim(worldState, towers.get(i), towerAims[i]) ||
+                    !isValidAim(worldState, towers.get(i), towerTargets[i]) ||
+                    (towerTargets[i] == WorldState.NO_CELL) != (towerPhases[i] == TowerPhase.RADAR))
+                throw new InvalidLogException("Checkpoint was saved on a different map.");
+        }
+
+        for(int i = 0; i < monsterCells.length; i++) {
+            if(!isOnRoute(route, monsterCells[i], monsterDirections[i], monsterPhases[i], monsterSteps[i]))
+                throw new InvalidLogException("Checkpoint was saved on a different map.");
+        }
+
+        for(int i = 0; i < towerPhases.length; i++)
+            towers.get(i).restore(towerPhases[i], towerCycles[i], towerAims[i], towerTargets[i]);
+
+        for(int i = 0; i < monsterCells.length; i++) {
+            // only fails if two monsters were saved on the same cell
+            if(!monsters.get(i).restore(monsterCells[i], monsterDirections[i], monsterHealth[i], monsterPhases[i],
+                    monsterCycles[i], monsterSteps[i]))
+                throw new InvalidLogException("Checkpoint is corrupted.");
+        }
+
+        if(ticker instanceof StepTicker stepTicker)
+            stepTicker.advanceTo(tick);
+
+        long shift = ticker.getTick() - tick;
+
+        spawner.restoreWave(waveStart + shift, admittedInWave, nextWave + shift);
+    }
+
+    /**
+     * Getter for the number of ticks run.
+     *
+     * @return a non negative number of ticks.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Getter for the number of monsters that died.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        return kills;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Getter for the number of monsters to be restored, in the world or waiting to enter it.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getNumberOfMonsters() {
+        return monsterCells.length + waiting;
+    }
+
+    /* Checks if a cell aimed at by a tower is in range of the tower, or none */
+    private static boolean isValidAim(WorldState worldState, Tower tower, int cell) {
+        return cell == WorldState.NO_CELL || worldState.isCellInMap(cell) && tower.getCoverage().coversShot(cell);
+    }
+
+    /* Checks if a monster with the next step of the route stands where the steps before it lead */
+    private static boolean isOnRoute(Route route, int cell, Direction direction, MonsterPhase phase, int step) {
+        if(step >= route.getLength())
+            return false;
+
+        if(step == 0)
+            return cell == route.getBeginning() && direction == route.getInitialDirection() &&
+                    phase == route.getPhase(step);
+
+        return cell == route.getCell(step - 1) && direction == route.getDirection(step - 1) &&
+                phase == route.getPhase(step);
+    }
+
+    /* Reads a varint that must fit in a non negative int */
+    private static int readInt(ByteBuffer buffer) throws InvalidLogException {
+        long value = EventLog.getVarLong(buffer);
+
+        if(value < 0 || value > Integer.MAX_VALUE)
+            throw new InvalidLogException("Checkpoint is corrupted.");
+
+        return (int) value;
+    }
+}
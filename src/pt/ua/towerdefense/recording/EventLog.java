@@ -0,0 +1,134 @@
+package pt.ua.towerdefense.recording;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class with the format of the event logs.
+ * A log starts with a header: the magic number, the format version, and the number of columns
+ * and lines of the map, as varints. Then come the records, one per event: the type of the event
+ * in one byte, followed by the tick, the id of the entity and the cell of the event, each one as
+ * the zigzag varint of its difference to the same field of the previous record. Ticks never go
+ * back and consecutive events mostly concern the same or nearby entities and cells, so most of
+ * the records take four or five bytes. A zero type byte, or the end of the file, ends the log.
+ *
+ * @author Eduardo Sousa
+ */
+public class EventLog {
+    /**
+     * Magic number at the beginning of every log, "TDLG" in ASCII.
+     */
+    public static final int MAGIC = 0x54444C47;
+
+    /**
+     * Version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Type byte that ends the log.
+     */
+    public static final byte END = 0;
+
+    /**
+     * A monster entered the world.
+     */
+    public static final byte MONSTER_SPAWNED = 1;
+
+    /**
+     * A monster moved to another cell.
+     */
+    public static final byte MONSTER_MOVED = 2;
+
+    /**
+     * A monster turned on the spot.
+     */
+    public static final byte MONSTER_ROTATED = 3;
+
+    /**
+     * A monster died and left the world.
+     */
+    public static final byte MONSTER_DIED = 4;
+
+    /**
+     * A monster reached the end of the path and left the world.
+     */
+    public static final byte MONSTER_ARRIVED = 5;
+
+    /**
+     * A tower rotated its cannon.
+     */
+    public static final byte TOWER_ROTATED = 6;
+
+    /**
+     * A tower shot.
+     */
+    public static final byte TOWER_SHOT = 7;
+
+    /**
+     * Maximum number of bytes of a record.
+     */
+    public static final int MAX_RECORD_SIZE = 1 + 3 * 10;
+
+    /**
+     * Writes a non negative value as a varint, seven bits per byte, least significant first.
+     *
+     * @param buffer buffer where the value is written, with enough space remaining.
+     * @param value value to be written, seen as unsigned.
+     */
+    public static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint written by putVarLong.
+     *
+     * @param buffer buffer where the value is read.
+     *
+     * @return the value read, seen as unsigned.
+     *
+     * @throws InvalidLogException if the varint is longer than a long or is cut short by the end of the buffer.
+     */
+    public static long getVarLong(ByteBuffer buffer) throws InvalidLogException {
+        long value = 0;
+
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            if(!buffer.hasRemaining())
+                throw new InvalidLogException("File ends in the middle of a record.");
+
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if(b >= 0)
+                return value;
+        }
+
+        throw new InvalidLogException("File has a malformed number.");
+    }
+
+    /**
+     * Maps a signed value to an unsigned one with the same magnitude order: 0, -1, 1, -2, 2...
+     *
+     * @param value signed value.
+     *
+     * @return the zigzag encoded value.
+     */
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Maps a zigzag encoded value back to the signed one.
+     *
+     * @param value zigzag encoded value.
+     *
+     * @return the signed value.
+     */
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,177 @@
+package pt.ua.towerdefense.recording;
+
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.timing.Ticker;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Listener that appends the events that change the world to an event log.
+ * Spawns, moves, rotations, deaths and arrivals of the monsters, and rotations and shots of
+ * the towers are recorded with their tick, in the order they happened. The log is written to
+ * a window of the file mapped in memory, so recording an event only copies a few bytes, and a
+ * new window is mapped after the last byte written when the current one fills up. Events are
+ * serialized by a lock held just while their record is copied. Closing the recorder cuts the
+ * file after the last record, and a log that was not closed ends in zeros, read as its end.
+ *
+ * @author Eduardo Sousa
+ */
+public class EventRecorder implements SimulationListener {
+    /* Number of bytes of the file mapped at a time */
+    private static final int WINDOW_SIZE = 1 << 24;
+
+    /* Ticker that gives the tick of each event */
+    private final Ticker ticker;
+
+    /* Channel of the log file */
+    private final FileChannel channel;
+
+    /* Lock that serializes the records */
+    private final ReentrantLock lock;
+
+    /* Window of the file where the records are written */
+    private MappedByteBuffer window;
+
+    /* Offset in the file of the beginning of the window */
+    private long windowOffset;
+
+    /* Tick of the last record */
+    private long lastTick;
+
+    /* Entity of the last record */
+    private long lastEntity;
+
+    /* Cell of the last record */
+    private long lastCell;
+
+    /* True once the recorder was closed or failed to write */
+    private boolean closed;
+
+    /**
+     * Constructor for the event recorder.<br>
+     * Creates the log file, replacing it if it exists, and writes its header.
+     *
+     * @param file path of the log file.
+     * @param ticker ticker that paces the simulation.
+     * @param numberOfColumns number of columns of the map.
+     * @param numberOfLines number of lines of the map.
+     *
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public EventRecorder(Path file, Ticker ticker, int numberOfColumns, int numberOfLines) throws IOException {
+        assert file != null;
+        assert ticker != null;
+        assert numberOfColumns > 0 && numberOfLines > 0;
+
+        this.ticker = ticker;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lock = new ReentrantLock();
+        this.windowOffset = 0;
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+        this.lastTick = 0;
+        this.lastEntity = 0;
+        this.lastCell = 0;
+        this.closed = false;
+
+        this.window.putInt(EventLog.MAGIC);
+        this.window.put(EventLog.VERSION);
+        EventLog.putVarLong(this.window, numberOfColumns);
+        EventLog.putVarLong(this.window, numberOfLines);
+    }
+
+    @Override
+    public void monsterSpawned(long monster, int cell) {
+        record(EventLog.MONSTER_SPAWNED, monster, cell);
+    }
+
+    @Override
+    public void monsterMoved(long monster, int cell) {
+        record(EventLog.MONSTER_MOVED, monster, cell);
+    }
+
+    @Override
+    public void monsterRotated(long monster, int cell) {
+        record(EventLog.MONSTER_ROTATED, monster, cell);
+    }
+
+    @Override
+    public void monsterDied(long monster, int cell) {
+        record(EventLog.MONSTER_DIED, monster, cell);
+    }
+
+    @Override
+    public void monsterArrived(long monster, int cell) {
+        record(EventLog.MONSTER_ARRIVED, monster, cell);
+    }
+
+    @Override
+    public void towerRotated(long tower, int cell) {
+        record(EventLog.TOWER_ROTATED, tower, cell);
+    }
+
+    @Override
+    public void towerShot(long tower, int cell) {
+        record(EventLog.TOWER_SHOT, tower, cell);
+    }
+
+    /**
+     * Stops recording and cuts the log file after the last record.<br>
+     * Events that happen afterwards are ignored.
+     */
+    public void close() {
+        lock.lock();
+
+        try {
+            if(!closed) {
+                closed = true;
+                long size = windowOffset + window.position();
+                window = null;
+                channel.truncate(size);
+                channel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Appends a record to the log */
+    private void record(byte type, long entity, int cell) {
+        lock.lock();
+
+        try {
+            if(closed)
+                return;
+
+            if(window.remaining() < EventLog.MAX_RECORD_SIZE) {
+                windowOffset += window.position();
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowOffset, WINDOW_SIZE);
+            }
+
+            // read inside the lock, so that the ticks of the records never go back
+            long tick = ticker.getTick();
+
+            window.put(type);
+            EventLog.putVarLong(window, EventLog.zigzag(tick - lastTick));
+            EventLog.putVarLong(window, EventLog.zigzag(entity - lastEntity));
+            EventLog.putVarLong(window, EventLog.zigzag(cell - lastCell));
+
+            lastTick = tick;
+            lastEntity = entity;
+            lastCell = cell;
+        } catch (IOException e) {
+            // the simulation goes on without the rest of the log
+            closed = true;
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package pt.ua.towerdefense.recording;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.timing.StepTicker;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that replays an event log on a world, from the thread that calls it.
+ * No entity is created: the monsters enter, move and leave the world as the log says, so the
+ * world goes through the same states as in the recorded run, and the renderer and the listener
+ * of the world see the same events, as fast as they can take them. Rotations and shots do not
+ * change the world, so they are only given to its listener. The ticker advances to the tick of
+ * each event before it is replayed.<br>
+ * The world must have been built from the map of the recorded run, and have no monsters.
+ *
+ * @author Eduardo Sousa
+ */
+public class EventReplayer {
+    /* Health given to the monsters, since the log does not record it */
+    private static final int HEALTH = Integer.MAX_VALUE;
+
+    /* World state */
+    private final WorldState worldState;
+
+    /* Heading given to the monsters when they enter the world */
+    private final Direction direction;
+
+    /* Ticker of the world, advanced to the tick of each event */
+    private final StepTicker ticker;
+
+    /* Handles of the monsters in the world, by the id they had in the recorded run */
+    private final Map<Long, Integer> handles;
+
+    /* Number of monsters that died so far */
+    private int kills;
+
+    /* Number of monsters that reached the end of the path so far */
+    private int leaks;
+
+    /**
+     * Constructor for the event replayer.
+     *
+     * @param worldState world where the log is replayed, with no monsters.
+     * @param direction heading given to the monsters when they enter the world.
+     * @param ticker ticker of the world.
+     */
+    public EventReplayer(WorldState worldState, Direction direction, StepTicker ticker) {
+        assert worldState != null;
+        assert direction != null;
+        assert ticker != null;
+
+        this.worldState = worldState;
+        this.direction = direction;
+        this.ticker = ticker;
+        this.handles = new HashMap<>();
+        this.kills = 0;
+        this.leaks = 0;
+    }
+
+    /**
+     * Replays a log file.
+     *
+     * @param file path of the log file.
+     *
+     * @return the number of events replayed.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidLogException if the file is not a valid log of a run on the world's map.
+     */
+    public long replay(Path file) throws IOException {
+        assert file != null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if(size > Integer.MAX_VALUE)
+                throw new InvalidLogException("Event log must be smaller than 2 GB.");
+
+            return replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Replays the records of a log.
+     *
+     * @param buffer contents of the log, read from its position up to the limit.
+     *
+     * @return the number of events replayed.
+     *
+     * @throws InvalidLogException if the contents are not a valid log of a run on the world's map.
+     */
+    public long replay(ByteBuffer buffer) throws InvalidLogException {
+        assert buffer != null;
+
+        if(buffer.remaining() < Integer.BYTES + 1 || buffer.getInt() != EventLog.MAGIC)
+            throw new InvalidLogException("File is not an event log.");
+
+        if(buffer.get() != EventLog.VERSION)
+            throw new InvalidLogException("Event log was written by an unsupported version.");
+
+        if(EventLog.getVarLong(buffer) != worldState.getNumberOfColumns() ||
+                EventLog.getVarLong(buffer) != worldState.getNumberOfLines())
+            throw new InvalidLogException("Event log was recorded on a map of a different size.");
+
+        long events = 0;
+        long tick = 0;
+        long entity = 0;
+        long cell = 0;
+
+        while (buffer.hasRemaining()) {
+            byte type = buffer.get();
+
+            if(type == EventLog.END)
+                break;
+
+            tick += EventLog.unzigzag(EventLog.getVarLong(buffer));
+            entity += EventLog.unzigzag(EventLog.getVarLong(buffer));
+            cell += EventLog.unzigzag(EventLog.getVarLong(buffer));
+
+            if(tick < ticker.getTick())
+                throw new InvalidLogException("Event log goes back in time.");
+
+            if(cell < 0 || cell >= worldState.getNumberOfCells())
+                throw new InvalidLogException("Event log has a cell outside the map.");
+
+            ticker.advanceTo(tick);
+            apply(type, entity, (int) cell);
+            events++;
+        }
+
+        return events;
+    }
+
+    /**
+     * Getter for the number of monsters that died so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getKills() {
+        return kills;
+    }
+
+    /**
+     * Getter for the number of monsters that reached the end of the path so far.
+     *
+     * @return a non negative number of monsters.
+     */
+    public int getLeaks() {
+        return leaks;
+    }
+
+    /* Replays an event on the world */
+    private void apply(byte type, long entity, int cell) throws InvalidLogException {
+        SimulationListener listener = worldState.getListener();
+
+        switch (type) {
+            case EventLog.MONSTER_SPAWNED:
+                if(handles.containsKey(entity))
+                    throw new InvalidLogException("Event log spawns a monster that is already in the world.");
+
+                if(!worldState.getPathBeginning().equals(positionOf(cell)))
+                    throw new InvalidLogException("Event log spawns a monster outside the beginning of the path.");
+
+                int handle = worldState.tryAddMonster(direction, HEALTH, entity);
+
+                if(handle == MonsterStore.NO_HANDLE)
+                    throw new InvalidLogException("Event log spawns a monster on an occupied cell.");
+
+                handles.put(entity, handle);
+                break;
+            case EventLog.MONSTER_MOVED:
+                if(!worldState.isPositionInPath(positionOf(cell)))
+                    throw new InvalidLogException("Event log moves a monster outside the path.");
+
+                if(!worldState.tryMoveMonster(handleOf(entity), cell))
+                    throw new InvalidLogException("Event log moves a monster to an occupied cell.");
+
+                break;
+            case EventLog.MONSTER_DIED:
+                worldState.getMonsterStore().damage(handleOf(entity), HEALTH);
+                worldState.removeMonster(handles.remove(entity));
+                kills++;
+                break;
+            case EventLog.MONSTER_ARRIVED:
+                worldState.removeMonster(handleOf(entity));
+                handles.remove(entity);
+                leaks++;
+                break;
+            case EventLog.MONSTER_ROTATED:
+                handleOf(entity);
+                listener.monsterRotated(entity, cell);
+                break;
+            case EventLog.TOWER_ROTATED:
+                listener.towerRotated(entity, cell);
+                break;
+            case EventLog.TOWER_SHOT:
+                listener.towerShot(entity, cell);
+                break;
+            default:
+                throw new InvalidLogException("Event log has an unknown event type.");
+        }
+    }
+
+    /* Position of a cell of the world */
+    private Position positionOf(int cell) {
+        return new Position(worldState.getCoordinateX(cell), worldState.getCoordinateY(cell));
+    }
+
+    /* Getter for the handle of a monster in the world */
+    private int handleOf(long entity) throws InvalidLogException {
+        Integer handle = handles.get(entity);
+
+        if(handle == null)
+            throw new InvalidLogException("Event log has an event of a monster that is not in the world.");
+
+        return handle;
+    }
+}
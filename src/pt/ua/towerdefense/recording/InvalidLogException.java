@@ -0,0 +1,23 @@
+package pt.ua.towerdefense.recording;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a file is not a valid event log or checkpoint, or does not match the map it is used on.
+ * The message explains what is wrong, and is meant to be shown to the user.
+ *
+ * @author Eduardo Sousa
+ */
+public class InvalidLogException extends IOException {
+    /* Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the exception.
+     *
+     * @param message explanation of what is wrong with the file.
+     */
+    public InvalidLogException(String message) {
+        super(message);
+    }
+}
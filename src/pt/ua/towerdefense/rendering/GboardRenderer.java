@@ -0,0 +1,82 @@
+package pt.ua.towerdefense.rendering;
+
+import pt.ua.gboard.Gelem;
+import pt.ua.gboard.games.Labyrinth;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Renderer that shows the world in a gboard labyrinth.
+ * The drawing operations are queued in the order they were requested
+ * and painted by a dedicated thread, so that the world state does not
+ * wait for the board to be painted.
+ *
+ * @author Eduardo Sousa
+ */
+public class GboardRenderer implements Renderer {
+    /* Gboard's labyrinth */
+    private final Labyrinth maze;
+
+    /* Image that represents a monster */
+    private final Gelem monsterGelem;
+
+    /* Image that represents a tower */
+    private final Gelem towerGelem;
+
+    /* Drawing operations waiting to be painted */
+    private final BlockingQueue<Runnable> operations;
+
+    /**
+     * Constructor for the gboard renderer.
+     *
+     * @param maze labyrinth object where monsters and tower should be drawn.
+     * @param monsterGelem image that represents the monsters.
+     * @param towerGelem image that represents the towers.
+     */
+    public GboardRenderer(Labyrinth maze, Gelem monsterGelem, Gelem towerGelem) {
+        assert maze != null;
+        assert monsterGelem != null;
+        assert towerGelem != null;
+
+        this.maze = maze;
+        this.monsterGelem = monsterGelem;
+        this.towerGelem = towerGelem;
+        this.operations = new LinkedBlockingQueue<>();
+
+        Thread painter = new Thread(this::paint, "gboard-renderer");
+        painter.setDaemon(true);
+        painter.start();
+    }
+
+    @Override
+    public void drawTower(int coordinateX, int coordinateY) {
+        operations.add(() -> maze.board.draw(towerGelem, coordinateY, coordinateX, 1));
+    }
+
+    @Override
+    public void drawMonster(int coordinateX, int coordinateY) {
+        operations.add(() -> maze.board.draw(monsterGelem, coordinateY, coordinateX, 1));
+    }
+
+    @Override
+    public void moveMonster(int fromX, int fromY, int toX, int toY) {
+        operations.add(() -> maze.board.move(monsterGelem, fromY, fromX, toY, toX));
+    }
+
+    @Override
+    public void eraseMonster(int coordinateX, int coordinateY) {
+        operations.add(() -> maze.board.erase(monsterGelem, coordinateY, coordinateX));
+    }
+
+    /* Paints the queued operations, in order, for as long as the program runs */
+    private void paint() {
+        while (true) {
+            try {
+                operations.take().run();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
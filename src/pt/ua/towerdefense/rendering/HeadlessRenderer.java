@@ -0,0 +1,24 @@
+package pt.ua.towerdefense.rendering;
+
+/**
+ * Renderer that does not show anything, used to run simulations without a display.
+ *
+ * @author Eduardo Sousa
+ */
+public class HeadlessRenderer implements Renderer {
+    @Override
+    public void drawTower(int coordinateX, int coordinateY) {
+    }
+
+    @Override
+    public void drawMonster(int coordinateX, int coordinateY) {
+    }
+
+    @Override
+    public void moveMonster(int fromX, int fromY, int toX, int toY) {
+    }
+
+    @Override
+    public void eraseMonster(int coordinateX, int coordinateY) {
+    }
+}
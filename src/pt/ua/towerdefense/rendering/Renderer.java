@@ -0,0 +1,44 @@
+package pt.ua.towerdefense.rendering;
+
+/**
+ * Interface for the objects that show the world state.
+ * The world state calls the renderer while it holds its write lock,
+ * so implementations must return quickly and must not call back into the world.
+ *
+ * @author Eduardo Sousa
+ */
+public interface Renderer {
+    /**
+     * Shows a tower in a cell.
+     *
+     * @param coordinateX coordinate in the XX axis where the tower was placed.
+     * @param coordinateY coordinate in the YY axis where the tower was placed.
+     */
+    void drawTower(int coordinateX, int coordinateY);
+
+    /**
+     * Shows a monster in a cell.
+     *
+     * @param coordinateX coordinate in the XX axis where the monster was placed.
+     * @param coordinateY coordinate in the YY axis where the monster was placed.
+     */
+    void drawMonster(int coordinateX, int coordinateY);
+
+    /**
+     * Moves a monster between two cells.
+     *
+     * @param fromX coordinate in the XX axis where the monster was.
+     * @param fromY coordinate in the YY axis where the monster was.
+     * @param toX coordinate in the XX axis where the monster is.
+     * @param toY coordinate in the YY axis where the monster is.
+     */
+    void moveMonster(int fromX, int fromY, int toX, int toY);
+
+    /**
+     * Stops showing a monster.
+     *
+     * @param coordinateX coordinate in the XX axis where the monster was.
+     * @param coordinateY coordinate in the YY axis where the monster was.
+     */
+    void eraseMonster(int coordinateX, int coordinateY);
+}
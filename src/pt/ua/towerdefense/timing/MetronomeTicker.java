@@ -0,0 +1,44 @@
+package pt.ua.towerdefense.timing;
+
+import pt.ua.concurrent.Metronome;
+
+/**
+ * Ticker that paces the threads with a metronome.
+ *
+ * @author Eduardo Sousa
+ */
+public class MetronomeTicker implements Ticker {
+    /* Metronome that helps sync all threads based on time */
+    private final Metronome metronome;
+
+    /* Duration of a tick in milliseconds, the period of the metronome */
+    private final long tickMs;
+
+    /* Time when the ticker started, in nanoseconds */
+    private final long start;
+
+    /**
+     * Constructor for the metronome ticker.
+     *
+     * @param metronome metronome to sync in time.
+     * @param tickMs period of the metronome in milliseconds.
+     */
+    public MetronomeTicker(Metronome metronome, long tickMs) {
+        assert metronome != null;
+        assert tickMs > 0;
+
+        this.metronome = metronome;
+        this.tickMs = tickMs;
+        this.start = System.nanoTime();
+    }
+
+    @Override
+    public void sync() {
+        metronome.sync();
+    }
+
+    @Override
+    public long getTick() {
+        return (System.nanoTime() - start) / (tickMs * 1_000_000L);
+    }
+}
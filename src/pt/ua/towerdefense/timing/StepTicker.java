@@ -0,0 +1,50 @@
+package pt.ua.towerdefense.timing;
+
+/**
+ * Ticker of the engines that advance every entity from a single thread.
+ * The entities are never started, so they never call sync, and the engine
+ * advances the ticker at the end of each tick.
+ *
+ * @author Eduardo Sousa
+ */
+public class StepTicker implements Ticker {
+    /* Number of ticks run so far */
+    private volatile long tick;
+
+    /**
+     * Constructor for the step ticker.
+     */
+    public StepTicker() {
+        this.tick = 0;
+    }
+
+    @Override
+    public void sync() {
+        assert false : "entities driven by an engine must not sync";
+    }
+
+    @Override
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Advances to the next tick.<br>
+     * Must only be called by the engine.
+     */
+    public void advance() {
+        tick++;
+    }
+
+    /**
+     * Advances to a later tick, skipping the ones in between.<br>
+     * Must only be called by the engine.
+     *
+     * @param tick tick to advance to, not before the current one.
+     */
+    public void advanceTo(long tick) {
+        assert tick >= this.tick;
+
+        this.tick = tick;
+    }
+}
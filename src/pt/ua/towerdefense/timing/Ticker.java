@@ -0,0 +1,45 @@
+package pt.ua.towerdefense.timing;
+
+/**
+ * Interface for the time sources that pace the monsters and towers.
+ * Each call to sync blocks the caller until the next tick.
+ * Entities register while they take part in the simulation, so that tickers
+ * that wait for every entity before advancing know who to wait for.
+ *
+ * @author Eduardo Sousa
+ */
+public interface Ticker {
+    /**
+     * Blocks until the next tick.
+     */
+    void sync();
+
+    /**
+     * Getter for the number of ticks since the ticker started.
+     *
+     * @return a non negative number of ticks.
+     */
+    long getTick();
+
+    /**
+     * Checks if the entities may block in the world, outside of sync.
+     *
+     * @return true if the entities may block waiting for the world to change,
+     * false if they must poll the world once per tick instead.
+     */
+    default boolean allowsBlocking() {
+        return true;
+    }
+
+    /**
+     * Registers the calling entity, so that the ticker takes it into account.
+     */
+    default void register() {
+    }
+
+    /**
+     * Deregisters the calling entity, so that the ticker stops taking it into account.
+     */
+    default void deregister() {
+    }
+}
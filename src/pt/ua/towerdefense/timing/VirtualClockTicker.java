@@ -0,0 +1,110 @@
+package pt.ua.towerdefense.timing;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ticker that advances to the next tick as soon as every registered entity reached sync,
+ * without ever sleeping. The simulation then runs as fast as the processors allow,
+ * with each entity taking the same number of ticks for each action as with the wall clock.
+ * An entity blocked in the world would never reach sync, so the entities poll the world
+ * once per tick instead of blocking in it.<br>
+ * A phaser holds at most 65535 parties, so the entities are spread over a tree of phasers:
+ * each entity is a party of a child phaser, with a bounded number of parties, and each child
+ * with some party is a party of the root phaser, whose phases are the ticks. Entities are
+ * registered by whoever creates them, but sync from their own thread, so each registration
+ * leaves a seat on its child, and the first sync of a thread takes any seat that is left.
+ * The seats are all alike, so it does not matter which entity takes which.
+ *
+ * @author Eduardo Sousa
+ */
+public class VirtualClockTicker implements Ticker {
+    /* Maximum number of parties of each child phaser */
+    private static final int CHILD_PARTIES = 1024;
+
+    /* Phaser whose parties are the child phasers, and each phase is a tick */
+    private final Phaser root;
+
+    /* Child phaser that receives the next registrations, guarded by the registration lock */
+    private Phaser child;
+
+    /* Seats registered and not yet taken by a thread, one per entity */
+    private final Queue<Phaser> seats;
+
+    /* Child phaser where the calling thread is a party, null before its first sync */
+    private final ThreadLocal<Phaser> seat;
+
+    /* Lock that guards the choice of the child phaser of each registration */
+    private final ReentrantLock registrationLock;
+
+    /**
+     * Constructor for the virtual clock ticker.
+     */
+    public VirtualClockTicker() {
+        this.root = new Phaser() {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                // entities come and go, the clock must survive having none registered
+                return false;
+            }
+        };
+        this.child = new Phaser(root);
+        this.seats = new ConcurrentLinkedQueue<>();
+        this.seat = new ThreadLocal<>();
+        this.registrationLock = new ReentrantLock();
+    }
+
+    @Override
+    public void sync() {
+        seatOf().arriveAndAwaitAdvance();
+    }
+
+    @Override
+    public long getTick() {
+        return root.getPhase();
+    }
+
+    @Override
+    public boolean allowsBlocking() {
+        return false;
+    }
+
+    @Override
+    public void register() {
+        registrationLock.lock();
+
+        try {
+            if(child.getRegisteredParties() >= CHILD_PARTIES)
+                child = new Phaser(root);
+
+            // the first party of a child also registers the child in the root
+            child.register();
+            seats.add(child);
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    @Override
+    public void deregister() {
+        seatOf().arriveAndDeregister();
+        seat.remove();
+    }
+
+    /* Child phaser where the calling thread is a party, taking a seat on its first call */
+    private Phaser seatOf() {
+        Phaser taken = seat.get();
+
+        if(taken == null) {
+            taken = seats.poll();
+
+            assert taken != null;
+
+            seat.set(taken);
+        }
+
+        return taken;
+    }
+}
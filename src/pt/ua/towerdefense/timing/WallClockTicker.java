@@ -0,0 +1,46 @@
+package pt.ua.towerdefense.timing;
+
+/**
+ * Ticker that paces the threads with the wall clock, sleeping until the next tick.
+ * Does not hold any monitor while waiting, so virtual threads that use it
+ * release their carrier thread.
+ *
+ * @author Eduardo Sousa
+ */
+public class WallClockTicker implements Ticker {
+    /* Duration of a tick in milliseconds */
+    private final long tickMs;
+
+    /* Time when the ticker started, in nanoseconds */
+    private final long start;
+
+    /**
+     * Constructor for the wall clock ticker.
+     *
+     * @param tickMs duration of a tick in milliseconds.
+     */
+    public WallClockTicker(long tickMs) {
+        assert tickMs > 0;
+
+        this.tickMs = tickMs;
+        this.start = System.nanoTime();
+    }
+
+    @Override
+    public void sync() {
+        long tickNanos = tickMs * 1_000_000L;
+        long elapsed = System.nanoTime() - start;
+        long delay = tickNanos - elapsed % tickNanos;
+
+        try {
+            Thread.sleep(delay / 1_000_000L, (int) (delay % 1_000_000L));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public long getTick() {
+        return (System.nanoTime() - start) / (tickMs * 1_000_000L);
+    }
+}
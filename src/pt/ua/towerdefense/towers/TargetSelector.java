@@ -0,0 +1,165 @@
+package pt.ua.towerdefense.towers;
+
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+import pt.ua.towerdefense.world.Position;
+import pt.ua.towerdefense.world.TowerCoverage;
+import pt.ua.towerdefense.world.WorldState;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Class that chooses which monster in shooting range a tower shoots, following a targeting policy.
+ * The route cells inside the shot range never change, so they are ranked once, when the tower is
+ * created, in the order the policy prefers them: by progress along the route, or by distance to the
+ * tower. Policies that prefer monsters by their health rank the cells from the furthest along the
+ * route, which breaks their ties.<br>
+ * Each sweep marks the ranks of the cells where the radar found monsters in a bitmap, so choosing
+ * the target is a search for the lowest rank marked, or a walk over the ranks marked when the health
+ * decides, without sorting the hits.
+ *
+ * @author Eduardo Sousa
+ */
+public class TargetSelector {
+    /* Route cells covered by the tower */
+    private final TowerCoverage coverage;
+
+    /* Way of choosing which monster to shoot */
+    private final TargetingPolicy policy;
+
+    /* Coverage indices of the cells inside the shot range, from the most to the least preferred */
+    private final int[] ranked;
+
+    /* Rank of each coverage index, -1 for the cells outside the shot range */
+    private final int[] rankOf;
+
+    /* Bitmap of the ranks where the current sweep found monsters */
+    private final long[] marked;
+
+    /* Health of the monster found at each rank in the current sweep */
+    private final int[] healthAt;
+
+    /**
+     * Constructor for the target selector.
+     *
+     * @param world world where the tower is.
+     * @param coverage route cells covered by the tower.
+     * @param position position of the tower.
+     * @param policy way of choosing which monster to shoot.
+     */
+    public TargetSelector(WorldState world, TowerCoverage coverage, Position position, TargetingPolicy policy) {
+        assert world != null;
+        assert coverage != null;
+        assert position != null;
+        assert policy != null;
+
+        this.coverage = coverage;
+        this.policy = policy;
+
+        Comparator<Integer> preference;
+
+        switch (policy) {
+            case LAST:
+                preference = Comparator.naturalOrder();
+                break;
+            case CLOSEST:
+                Comparator<Integer> distance = Comparator.comparingInt(index -> {
+                    int cell = coverage.getRadarCell(index);
+                    int dx = world.getCoordinateX(cell) - position.getCoordinateX();
+                    int dy = world.getCoordinateY(cell) - position.getCoordinateY();
+
+                    return dx * dx + dy * dy;
+                });
+                preference = distance.thenComparing(Comparator.reverseOrder());
+                break;
+            default:
+                preference = Comparator.reverseOrder();
+                break;
+        }
+
+        // coverage indices follow the progress along the route
+        this.ranked = IntStream.range(0, coverage.getRadarSize()).filter(coverage::isInShotRange).boxed()
+                .sorted(preference).mapToInt(Integer::intValue).toArray();
+        this.rankOf = new int[coverage.getRadarSize()];
+        this.marked = new long[(ranked.length + Long.SIZE - 1) / Long.SIZE];
+        this.healthAt = new int[ranked.length];
+
+        Arrays.fill(rankOf, -1);
+
+        for(int rank = 0; rank < ranked.length; rank++)
+            rankOf[ranked[rank]] = rank;
+    }
+
+    /**
+     * Checks if the policy needs the health of the monsters found by the radar.
+     *
+     * @return true if the health decides which monster is shot.
+     */
+    public boolean needsHealth() {
+        return policy == TargetingPolicy.LOWEST_HEALTH || policy == TargetingPolicy.HIGHEST_HEALTH;
+    }
+
+    /**
+     * Chooses the monster to shoot among the ones found by a radar sweep.
+     *
+     * @param hits coverage indices of the cells where monsters were found.
+     * @param health health of the monster found in each of those cells, only read if the policy needs it.
+     * @param count number of cells where monsters were found.
+     *
+     * @return the cell of the target, or NO_CELL if no monster was found in shooting range.
+     */
+    public int select(int[] hits, int[] health, int count) {
+        assert hits != null;
+        assert !needsHealth() || health != null;
+        assert count >= 0 && count <= hits.length;
+
+        for(int i = 0; i < count; i++) {
+            int rank = rankOf[hits[i]];
+
+            if(rank >= 0) {
+                marked[rank >>> 6] |= 1L << rank;
+
+                if(health != null)
+                    healthAt[rank] = health[i];
+            }
+        }
+
+        int best = -1;
+
+        for(int word = 0; word < marked.length; word++) {
+            long bits = marked[word];
+
+            while (bits != 0) {
+                int rank = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+
+                if(best == -1 || isPreferred(rank, best))
+                    best = rank;
+
+                // the lowest rank marked wins unless the health decides
+                bits = needsHealth() ? bits & (bits - 1) : 0;
+            }
+
+            marked[word] = 0;
+
+            if(best != -1 && !needsHealth()) {
+                Arrays.fill(marked, word + 1, marked.length, 0);
+                break;
+            }
+        }
+
+        return best == -1 ? WorldState.NO_CELL : coverage.getRadarCell(ranked[best]);
+    }
+
+    /* Checks if the monster at a rank is preferred to the best one found so far, at a lower rank */
+    private boolean isPreferred(int rank, int best) {
+        switch (policy) {
+            case LOWEST_HEALTH:
+                return healthAt[rank] < healthAt[best];
+            case HIGHEST_HEALTH:
+                return healthAt[rank] > healthAt[best];
+            default:
+                return false;
+        }
+    }
+}
@@ -1,29 +1,35 @@
 package pt.ua.towerdefense.towers;
 
-import pt.ua.concurrent.CThread;
-import pt.ua.concurrent.Metronome;
-import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.monitoring.EntityIds;
 import pt.ua.towerdefense.world.Position;
-import pt.ua.towerdefense.definitions.RotationWise;
+import pt.ua.towerdefense.timing.Ticker;
+import pt.ua.towerdefense.world.Route;
+import pt.ua.towerdefense.world.TowerCoverage;
 import pt.ua.towerdefense.world.WorldState;
 
-import java.util.List;
-
 /**
- * Class responsible for the tower threads.
+ * Class responsible for the towers.
  * Waits until a monster is in range. When a monster is in range,
  * it will shoot it until the monster dies or is out of shooting
  * range.
  * Then goes back to sleep.
+ * The radar only looks at the route cells covered by the tower, which are
+ * computed when the tower is created, and the monster to shoot is chosen
+ * among the ones in shooting range by the targeting policy of the tower.
+ * The tower runs on whatever thread an engine gives it, or is ticked by an
+ * engine with no thread of its own.
  *
  * @author Eduardo Sousa
  */
-public class Tower extends CThread {
+public class Tower implements Runnable {
+    /* Id of the tower, that identifies it in the events of the simulation */
+    private final long id;
+
     /* World state */
     private final WorldState worldState;
 
-    /* Metronome that helps synchronize threads based on time */
-    private final Metronome metronome;
+    /* Ticker that helps synchronize threads based on time */
+    private final Ticker ticker;
 
     /* Position in the map where the tower is located. */
     private final Position position;
@@ -31,154 +37,303 @@ public class Tower extends CThread {
     /* Attributes of the tower. */
     private final TowerAttributes attributes;
 
-    /* Direction to where the cannon of the tower is placed. */
-    private Position aimingPosition;
+    /* Cell to where the cannon of the tower is pointing, NO_CELL before the first rotation. */
+    private int aimingCell;
+
+    /* Phase of the tower's operation cycle. */
+    private TowerPhase phase;
+
+    /* Number of cycles left to complete the current phase. */
+    private int remainingCycles;
+
+    /* Cell the tower is going to shoot at, NO_CELL while there is none. */
+    private int target;
+
+    /* Route cells covered by the radar and the cannon. */
+    private final TowerCoverage coverage;
+
+    /* Buffer where the radar writes the coverage indices of the monsters in range, reused by every sweep. */
+    private final int[] radarHits;
+
+    /* Buffer where the radar writes the health of the monsters in range, null if the targeting policy ignores it. */
+    private final int[] radarHealth;
+
+    /* Chooses the monster to shoot among the ones in range. */
+    private final TargetSelector selector;
+
+    /* True once the tower was asked to stop. */
+    private volatile boolean stopped;
 
     /**
      * Constructor for the tower
      *
      * @param worldState reference to the world tower interface.
-     * @param metronome metronome.
+     * @param ticker ticker to sync in time.
      * @param position reference to the position where the tower is located.
      * @param attributes reference to the tower attributes.
+     * @param route route followed by the monsters.
      */
-    public Tower(WorldState worldState, Metronome metronome, Position position, TowerAttributes attributes) {
-        super();
+    public Tower(WorldState worldState, Ticker ticker, Position position, TowerAttributes attributes, Route route) {
+        this(worldState, ticker, position, attributes, new TowerCoverage(worldState, route, position,
+                attributes.getRadarRange(), attributes.getShotRange()));
+    }
 
+    /**
+     * Constructor for the tower, with a coverage computed beforehand.<br>
+     * Lets the coverage of a position be shared by the towers built there in several games on the same map.
+     *
+     * @param worldState reference to the world tower interface.
+     * @param ticker ticker to sync in time.
+     * @param position reference to the position where the tower is located.
+     * @param attributes reference to the tower attributes.
+     * @param coverage route cells covered by a tower with these attributes on this position, in a world like this one.
+     */
+    public Tower(WorldState worldState, Ticker ticker, Position position, TowerAttributes attributes,
+                 TowerCoverage coverage) {
         assert worldState != null;
-        assert metronome != null;
+        assert ticker != null;
         assert position != null;
         assert attributes != null;
+        assert coverage != null;
         assert worldState.isPositionForTower(position);
 
+        this.id = EntityIds.next();
         this.worldState = worldState;
-        this.metronome = metronome;
+        this.ticker = ticker;
         this.position = position;
         this.attributes = attributes;
+        this.aimingCell = WorldState.NO_CELL;
+        this.target = WorldState.NO_CELL;
+        this.coverage = coverage;
+        this.radarHits = new int[coverage.getRadarSize()];
+        this.selector = new TargetSelector(worldState, coverage, position, attributes.getTargetingPolicy());
+        this.radarHealth = selector.needsHealth() ? new int[coverage.getRadarSize()] : null;
+        this.stopped = false;
+
+        enter(TowerPhase.RADAR);
+
+        // a tower that covers no route cell is never started, so it must not hold the ticker back
+        if(!coverage.isEmpty())
+            this.ticker.register();
     }
 
     @Override
     public void run() {
         worldState.addTower(this);
 
-        while (true) {
-            List<Position> positions = activateRadar();
+        while (!stopped) {
+            this.ticker.sync();
+            cycle(this.ticker.allowsBlocking());
+        }
 
-            if(positions.size() > 0) {
-                for(Position pos : positions) {
-                    if(positionInShootingRange(pos)) {
-                        if(!pointingToPosition(pos))
-                            rotateToAngle(pos);
+        this.ticker.deregister();
+    }
 
-                        shoot(pos);
-                        break;
+    /**
+     * Asks a started tower to stop, once the game is over.<br>
+     * The tower finishes its current cycle, even if it was waiting for monsters in radar range, and then its
+     * thread ends.
+     */
+    public void shutdown() {
+        stopped = true;
+        this.worldState.stopTower(this);
+    }
+
+    /**
+     * Advances the tower by one cycle, without blocking.<br>
+     * Used by engines that drive every entity from a single thread instead of starting it.
+     * The tower must have been added to the world before.
+     */
+    public void tick() {
+        cycle(false);
+    }
+
+    /**
+     * Advances the current phase by one cycle and completes the phases whose cycles run out.
+     * Stops when a new radar sweep starts, so that the tower sweeps at most once per cycle.
+     *
+     * @param blocking true if the radar may block until there are monsters in range.
+     */
+    private void cycle(boolean blocking) {
+        remainingCycles--;
+
+        while (remainingCycles <= 0) {
+            switch (phase) {
+                case RADAR:
+                    target = activateRadar(blocking);
+
+                    if(target == WorldState.NO_CELL) {
+                        enter(TowerPhase.RADAR);
+                        return;
                     }
-                }
+
+                    enter(pointingToPosition(target) ? TowerPhase.SHOOTING : TowerPhase.ROTATING);
+                    break;
+                case ROTATING:
+                    rotateToAngle(target);
+                    enter(TowerPhase.SHOOTING);
+                    break;
+                case SHOOTING:
+                    shoot(target);
+                    enter(TowerPhase.COOLDOWN);
+                    break;
+                case COOLDOWN:
+                    target = WorldState.NO_CELL;
+                    enter(TowerPhase.RADAR);
+                    return;
             }
         }
     }
 
     /**
-     * Blocking function to wait for the targets in range.
+     * Starts a phase of the operation cycle.
      *
-     * @return a list of positions where there are targets.
+     * @param next phase to start.
      */
-    private List<Position> activateRadar() {
-        int waitingCycles = this.attributes.getRadarCycles();
-
-        while (waitingCycles > 0) {
-            this.metronome.sync();
-            waitingCycles--;
+    private void enter(TowerPhase next) {
+        assert next != null;
+
+        switch (next) {
+            case RADAR:
+                remainingCycles = this.attributes.getRadarCycles();
+                break;
+            case ROTATING:
+                remainingCycles = this.attributes.getRotateCycles();
+                break;
+            case SHOOTING:
+                remainingCycles = this.attributes.getShootCycles();
+                break;
+            case COOLDOWN:
+                remainingCycles = this.attributes.getCooldownCycles();
+                break;
         }
 
-        List<Position> result = this.worldState.getMonstersInRange();
+        phase = next;
+    }
+
+    /**
+     * Uses the radar to find a target in shooting range.
+     *
+     * @param blocking true to block until there are monsters in radar range.
+     *
+     * @return the cell of the target, or NO_CELL if there is none in shooting range.
+     */
+    private int activateRadar(boolean blocking) {
+        int count = blocking ? this.worldState.getMonstersInRange(this, radarHits, radarHealth) :
+                this.worldState.scanRadar(this, radarHits, radarHealth);
+
+        assert count >= 0 && count <= radarHits.length;
+        assert !blocking || count > 0 || stopped;
 
-        assert result != null;
-        assert !result.isEmpty();
+        this.worldState.getListener().radarSwept(id, getCell(), count);
 
-        return result;
+        return selector.select(radarHits, radarHealth, count);
     }
 
     /**
      * Rotates the tower's cannon in the desired direction.
-     * Blocks during the time it is rotating.
      */
-    private void rotateToAngle(Position position) {
-        assert position != null;
-        assert worldState.isPositionInMap(position);
+    private void rotateToAngle(int cell) {
+        assert worldState.isCellInMap(cell);
 
-        int waitingCycles = this.attributes.getRotateCycles();
+        aimingCell = cell;
+        this.worldState.getListener().towerRotated(id, cell);
 
-        while (waitingCycles > 0) {
-            this.metronome.sync();
-            waitingCycles--;
-        }
-
-        aimingPosition = position;
-
-        assert aimingPosition != null;
+        assert aimingCell != WorldState.NO_CELL;
     }
 
     /**
-     * Shoots into a desired position.<br>
-     * Blocks while shooting.
+     * Shoots into a desired cell.
      *
-     * @param pos position to shoot into.
+     * @param cell cell to shoot into.
      */
-    private void shoot(Position pos) {
-        assert pos != null;
-        assert worldState.isPositionInMap(pos);
-        assert pointingToPosition(pos);
-        assert positionInShootingRange(pos);
-
-        int waitingCycles = this.attributes.getShootCycles();
+    private void shoot(int cell) {
+        assert worldState.isCellInMap(cell);
+        assert pointingToPosition(cell);
+        assert coverage.coversShot(cell);
 
-        while (waitingCycles > 0) {
-            this.metronome.sync();
-            waitingCycles--;
-        }
-
-        this.worldState.shootPosition(pos);
+        this.worldState.shootPosition(this, cell);
+        this.worldState.getListener().towerShot(id, cell);
+    }
 
-        waitingCycles = this.attributes.getCooldownCycles();
+    /**
+     * Check if the tower's cannon is pointing to the right cell.
+     *
+     * @param cell cell where the tower needs to be aiming.
+     *
+     * @return true if the tower is aiming for the right cell.
+     */
+    private boolean pointingToPosition(int cell) {
+        assert worldState.isCellInMap(cell);
 
-        while (waitingCycles > 0) {
-            this.metronome.sync();
-            waitingCycles--;
-        }
+        return aimingCell == cell;
     }
 
     /**
-     * Check if the tower's cannon is pointing to the right position.
+     * Puts the tower in the state it was saved in.<br>
+     * Must be called before the tower is started or ticked. The tower then resumes in the saved phase.
      *
-     * @param pos position where the tower needs to be aiming.
+     * @param phase phase the tower was in.
+     * @param remainingCycles number of cycles left to complete the phase.
+     * @param aimingCell cell the cannon points to, NO_CELL before the first rotation.
+     * @param target cell the tower is going to shoot at, NO_CELL while there is none.
+     */
+    public void restore(TowerPhase phase, int remainingCycles, int aimingCell, int target) {
+        assert phase != null;
+        assert aimingCell == WorldState.NO_CELL || worldState.isCellInMap(aimingCell);
+        assert target == WorldState.NO_CELL || coverage.coversShot(target);
+        assert (target == WorldState.NO_CELL) == (phase == TowerPhase.RADAR);
+
+        this.phase = phase;
+        this.remainingCycles = remainingCycles;
+        this.aimingCell = aimingCell;
+        this.target = target;
+    }
+
+    /**
+     * Getter for the phase of the tower's operation cycle.<br>
+     * Only consistent while the tower is not running, such as between the ticks of an engine.
      *
-     * @return true if the tower is aiming for the right position.
+     * @return the current phase.
      */
-    private boolean pointingToPosition(Position pos) {
-        assert pos != null;
+    public TowerPhase getPhase() {
+        return this.phase;
+    }
 
-        return aimingPosition != null && aimingPosition.equals(pos);
+    /**
+     * Getter for the number of cycles left to complete the current phase.
+     *
+     * @return a number of cycles.
+     */
+    public int getRemainingCycles() {
+        return this.remainingCycles;
     }
 
     /**
-     * Check if the target is in shooting range.
+     * Getter for the cell the cannon points to.
      *
-     * @param pos position of the target.
-     * @return true if the target is in shooting range.
+     * @return the packed index of the cell, or NO_CELL before the first rotation.
      */
-    private boolean positionInShootingRange(Position pos) {
-        assert pos != null;
-        assert this.attributes != null;
-        assert this.position != null;
+    public int getAimingCell() {
+        return this.aimingCell;
+    }
 
-        int minX = this.position.getCoordinateX() - this.attributes.getShotRange();
-        int maxX = this.position.getCoordinateX() + this.attributes.getShotRange();
-        int minY = this.position.getCoordinateY() - this.attributes.getShotRange();
-        int maxY = this.position.getCoordinateY() + this.attributes.getShotRange();
+    /**
+     * Getter for the cell the tower is going to shoot at.
+     *
+     * @return the packed index of the cell, or NO_CELL while there is none.
+     */
+    public int getTarget() {
+        return this.target;
+    }
 
-        return pos.getCoordinateX() >= minX && pos.getCoordinateX() <= maxX &&
-                pos.getCoordinateY() >= minY && pos.getCoordinateY() <= maxY;
+    /**
+     * Getter for the id of the tower.
+     *
+     * @return a positive id, larger than the ids of the entities created before.
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -190,6 +345,34 @@ public class Tower extends CThread {
         return this.position;
     }
 
+    /**
+     * Getter for the cell where the tower was placed.
+     *
+     * @return the packed index of the cell.
+     */
+    public int getCell() {
+        return this.worldState.cellOf(this.position.getCoordinateX(), this.position.getCoordinateY());
+    }
+
+    /**
+     * Getter for the route cells covered by the tower.
+     *
+     * @return the coverage of the tower.
+     */
+    public TowerCoverage getCoverage() {
+        return this.coverage;
+    }
+
+    /**
+     * Checks if the tower can ever shoot a monster.<br>
+     * Towers without coverage are only added to the world, and are never started nor ticked.
+     *
+     * @return true if there is a route cell inside the shot range.
+     */
+    public boolean hasCoverage() {
+        return !this.coverage.isEmpty();
+    }
+
     /**
      * Getter for the damage caused by a shot.
      *
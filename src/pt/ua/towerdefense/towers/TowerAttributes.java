@@ -1,5 +1,7 @@
 package pt.ua.towerdefense.towers;
 
+import pt.ua.towerdefense.definitions.TargetingPolicy;
+
 /**
  * Class that represents the attributes of a tower, like for example: potential damage, shooting range.
  * The objects of this class are immutable.
@@ -31,6 +33,9 @@ public class TowerAttributes {
     /* Time it takes for the radar to complete a sweep of the area */
     private final int radarCycles;
 
+    /* Way of choosing which monster in shooting range to shoot */
+    private final TargetingPolicy targetingPolicy;
+
     /**
      * Constructor for the Tower Attributes objects.
      *
@@ -42,9 +47,12 @@ public class TowerAttributes {
      * @param shotRange max range to shoot at an object.
      * @param radarRange max range for the tower to detect an object.
      * @param radarCycles  minimum number of cycles that the radar takes.
+     * @param targetingPolicy way of choosing which monster in shooting range to shoot.
      */
     public TowerAttributes(int potentialDamage, int buildCost, int rotateCycles, int shootCycles, int cooldownCycles,
-                           int shotRange, int radarRange, int radarCycles) {
+                           int shotRange, int radarRange, int radarCycles, TargetingPolicy targetingPolicy) {
+        assert targetingPolicy != null;
+
         this.potentialDamage = potentialDamage;
         this.buildCost = buildCost;
         this.rotateCycles = rotateCycles;
@@ -53,6 +61,7 @@ public class TowerAttributes {
         this.shotRange = shotRange;
         this.radarRange = radarRange;
         this.radarCycles = radarCycles;
+        this.targetingPolicy = targetingPolicy;
     }
 
     /**
@@ -126,4 +135,13 @@ public class TowerAttributes {
     public int getRadarCycles() {
         return radarCycles;
     }
+
+    /**
+     * Getter for the way of choosing which monster in shooting range to shoot.
+     *
+     * @return the targeting policy.
+     */
+    public TargetingPolicy getTargetingPolicy() {
+        return targetingPolicy;
+    }
 }
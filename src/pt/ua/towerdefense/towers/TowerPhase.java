@@ -0,0 +1,28 @@
+package pt.ua.towerdefense.towers;
+
+/**
+ * Enum that represents the phases of the operation cycle of a tower.
+ *
+ * @author Eduardo Sousa
+ */
+public enum TowerPhase {
+    /**
+     * Sweeping the area with the radar.
+     */
+    RADAR,
+
+    /**
+     * Rotating the cannon to the target.
+     */
+    ROTATING,
+
+    /**
+     * Preparing the shot.
+     */
+    SHOOTING,
+
+    /**
+     * Cooling down after shooting.
+     */
+    COOLDOWN
+}
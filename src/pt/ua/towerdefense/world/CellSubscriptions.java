@@ -0,0 +1,132 @@
+package pt.ua.towerdefense.world;
+
+import java.util.Arrays;
+
+/**
+ * Class that maps the cells inside the radar range of some tower to the radar subscriptions of those towers.
+ * Only the route cells that a tower watches have subscriptions, so the cells are kept in an open
+ * addressing hash table, whose size depends on the cells watched and not on the size of the map.
+ * Cells are primitive keys, so that looking up a cell on every move of a monster does not allocate.<br>
+ * This class is not thread safe: the world state looks cells up under the lock of their region,
+ * and only adds subscriptions with the locks of every region held.
+ *
+ * @author Eduardo Sousa
+ */
+public class CellSubscriptions {
+    /* Key of the slots that hold no cell */
+    private static final int EMPTY = -1;
+
+    /* Initial number of slots, a power of two */
+    private static final int INITIAL_SLOTS = 16;
+
+    /* Cell of each slot, EMPTY for the free slots */
+    private int[] cells;
+
+    /* Subscriptions of the cell of each slot */
+    private RadarSubscription[][] subscriptions;
+
+    /* Number of slots in use */
+    private int size;
+
+    /**
+     * Constructor for the cell subscriptions, with no cell watched.
+     */
+    public CellSubscriptions() {
+        this.cells = new int[INITIAL_SLOTS];
+        this.subscriptions = new RadarSubscription[INITIAL_SLOTS][];
+        this.size = 0;
+
+        Arrays.fill(this.cells, EMPTY);
+    }
+
+    /**
+     * Getter for the subscriptions of a cell.
+     *
+     * @param cell packed index of the cell.
+     *
+     * @return the subscriptions of the towers that watch the cell, or null if there are none.
+     */
+    public RadarSubscription[] get(int cell) {
+        assert cell >= 0;
+
+        int slot = find(cells, cell);
+
+        return cells[slot] == cell ? subscriptions[slot] : null;
+    }
+
+    /**
+     * Adds the subscription of a tower that watches a cell.
+     *
+     * @param cell packed index of the cell.
+     * @param subscription subscription of the tower.
+     */
+    public void add(int cell, RadarSubscription subscription) {
+        assert cell >= 0;
+        assert subscription != null;
+
+        // at most half of the slots are in use, so that lookups stop at a free slot soon
+        if(2 * (size + 1) > cells.length)
+            resize(2 * cells.length);
+
+        int slot = find(cells, cell);
+
+        if(cells[slot] == EMPTY) {
+            cells[slot] = cell;
+            subscriptions[slot] = new RadarSubscription[] {subscription};
+            size++;
+        } else {
+            RadarSubscription[] extended = Arrays.copyOf(subscriptions[slot], subscriptions[slot].length + 1);
+            extended[extended.length - 1] = subscription;
+            subscriptions[slot] = extended;
+        }
+
+        assert get(cell) != null;
+    }
+
+    /**
+     * Removes the subscriptions of every cell, keeping the slots for the next ones.
+     */
+    public void clear() {
+        Arrays.fill(cells, EMPTY);
+        Arrays.fill(subscriptions, null);
+        this.size = 0;
+    }
+
+    /* Slot of a cell, or the free slot where it would be added */
+    private static int find(int[] cells, int cell) {
+        int mask = cells.length - 1;
+        int slot = mix(cell) & mask;
+
+        while (cells[slot] != cell && cells[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    /* Spreads the bits of a cell, since nearby cells are watched together */
+    private static int mix(int cell) {
+        int hash = cell * 0x9E3779B9;
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /* Moves every cell to a table with more slots */
+    private void resize(int slots) {
+        int[] oldCells = cells;
+        RadarSubscription[][] oldSubscriptions = subscriptions;
+
+        this.cells = new int[slots];
+        this.subscriptions = new RadarSubscription[slots][];
+
+        Arrays.fill(this.cells, EMPTY);
+
+        for(int i = 0; i < oldCells.length; i++) {
+            if(oldCells[i] != EMPTY) {
+                int slot = find(cells, oldCells[i]);
+
+                cells[slot] = oldCells[i];
+                subscriptions[slot] = oldSubscriptions[i];
+            }
+        }
+    }
+}
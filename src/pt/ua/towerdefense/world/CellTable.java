@@ -0,0 +1,124 @@
+package pt.ua.towerdefense.world;
+
+import java.util.Arrays;
+
+/**
+ * Class that maps some cells of a map to an int value each.
+ * Only the cells that were given a value take room, so the cells are kept in an open addressing
+ * hash table, whose size depends on the cells with a value and not on the size of the map.
+ * Cells and values are primitive, so that looking a cell up does not allocate.<br>
+ * This class is not thread safe, but a table that is no longer changed may be read by any thread.
+ *
+ * @author Eduardo Sousa
+ */
+public class CellTable {
+    /* Key of the slots that hold no cell */
+    private static final int EMPTY = -1;
+
+    /* Initial number of slots, a power of two */
+    private static final int INITIAL_SLOTS = 16;
+
+    /* Value of the cells that were never given one */
+    private final int absent;
+
+    /* Cell of each slot, EMPTY for the free slots */
+    private int[] cells;
+
+    /* Value of the cell of each slot */
+    private int[] values;
+
+    /* Number of slots in use */
+    private int size;
+
+    /**
+     * Constructor for the cell table, with no cell given a value.
+     *
+     * @param absent value of the cells that were never given one.
+     */
+    public CellTable(int absent) {
+        this.absent = absent;
+        this.cells = new int[INITIAL_SLOTS];
+        this.values = new int[INITIAL_SLOTS];
+        this.size = 0;
+
+        Arrays.fill(this.cells, EMPTY);
+    }
+
+    /**
+     * Getter for the value of a cell.
+     *
+     * @param cell packed index of the cell.
+     *
+     * @return the value of the cell, or the absent value if it was never given one.
+     */
+    public int get(int cell) {
+        assert cell >= 0;
+
+        int slot = find(cells, cell);
+
+        return cells[slot] == cell ? values[slot] : absent;
+    }
+
+    /**
+     * Setter for the value of a cell.
+     *
+     * @param cell packed index of the cell.
+     * @param value new value of the cell.
+     */
+    public void put(int cell, int value) {
+        assert cell >= 0;
+
+        // at most half of the slots are in use, so that lookups stop at a free slot soon
+        if(2 * (size + 1) > cells.length)
+            resize(2 * cells.length);
+
+        int slot = find(cells, cell);
+
+        if(cells[slot] == EMPTY) {
+            cells[slot] = cell;
+            size++;
+        }
+
+        values[slot] = value;
+
+        assert get(cell) == value;
+    }
+
+    /* Slot of a cell, or the free slot where it would be added */
+    private static int find(int[] cells, int cell) {
+        int mask = cells.length - 1;
+        int slot = mix(cell) & mask;
+
+        while (cells[slot] != cell && cells[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    /* Spreads the bits of a cell, since nearby cells are added together */
+    private static int mix(int cell) {
+        int hash = cell * 0x9E3779B9;
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /* Moves every cell to a table with more slots */
+    private void resize(int slots) {
+        int[] oldCells = cells;
+        int[] oldValues = values;
+
+        this.cells = new int[slots];
+        this.values = new int[slots];
+
+        Arrays.fill(this.cells, EMPTY);
+
+        for(int i = 0; i < oldCells.length; i++) {
+            if(oldCells[i] != EMPTY) {
+                int slot = find(cells, oldCells[i]);
+
+                cells[slot] = oldCells[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package pt.ua.towerdefense.world;
+
+import java.util.List;
+
+/**
+ * Class that represents a loaded map.
+ * The path, where monsters walk, is kept in a bitmap with one bit per cell, in
+ * row-major order. Every other cell is a wall, where a tower may be built. The cells
+ * where the path begins and ends and the positions of the towers are kept apart.<br>
+ * This class is immutable, so its terrain may be queried without any locking. The
+ * path bitmap must not be changed after it is given to the map.
+ *
+ * @author Eduardo Sousa
+ */
+public final class GameMap {
+    /* Number of columns of the map */
+    private final int numberOfColumns;
+
+    /* Number of lines of the map */
+    private final int numberOfLines;
+
+    /* Bit of each cell that belongs to the path, in row-major order */
+    private final long[] path;
+
+    /* Number of cells that belong to the path */
+    private final int pathCells;
+
+    /* Position where the path begins */
+    private final Position begin;
+
+    /* Position where the path ends */
+    private final Position end;
+
+    /* Positions of the towers, in row-major order */
+    private final List<Position> towers;
+
+    /**
+     * Constructor for the map.
+     *
+     * @param numberOfColumns number of columns of the map.
+     * @param numberOfLines number of lines of the map.
+     * @param path bitmap of the cells that belong to the path, created by newBitmap, owned by the map from now on.
+     * @param begin position where the path begins, in the path.
+     * @param end position where the path ends, in the path.
+     * @param towers positions of the towers, none of them in the path.
+     */
+    public GameMap(int numberOfColumns, int numberOfLines, long[] path, Position begin, Position end,
+                   List<Position> towers) {
+        assert numberOfColumns > 0;
+        assert numberOfLines > 0;
+        assert path != null;
+        assert path.length == newBitmap(numberOfColumns, numberOfLines).length;
+        assert begin != null;
+        assert end != null;
+        assert towers != null;
+
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfLines = numberOfLines;
+        this.path = path;
+        this.begin = begin;
+        this.end = end;
+        this.towers = List.copyOf(towers);
+
+        int count = 0;
+
+        for(long word : path)
+            count += Long.bitCount(word);
+
+        this.pathCells = count;
+
+        assert isPath(begin.getCoordinateX(), begin.getCoordinateY());
+        assert isPath(end.getCoordinateX(), end.getCoordinateY());
+        assert this.towers.stream().allMatch(tower -> !isPath(tower.getCoordinateX(), tower.getCoordinateY()));
+    }
+
+    /**
+     * Creates an empty bitmap, with one bit for each cell of a map.
+     *
+     * @param numberOfColumns number of columns of the map.
+     * @param numberOfLines number of lines of the map.
+     *
+     * @return a bitmap with every bit clear.
+     */
+    public static long[] newBitmap(int numberOfColumns, int numberOfLines) {
+        assert numberOfColumns > 0;
+        assert numberOfLines > 0;
+
+        return new long[(int) (((long) numberOfColumns * numberOfLines + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    /**
+     * Sets the bit of a cell in a bitmap.<br>
+     * Cells whose bits share the same word of the bitmap must not be set concurrently.
+     *
+     * @param bitmap bitmap created by newBitmap.
+     * @param cell packed index of the cell.
+     */
+    public static void set(long[] bitmap, int cell) {
+        assert bitmap != null;
+        assert cell >= 0 && cell / Long.SIZE < bitmap.length;
+
+        bitmap[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Getter for the number of columns of the map.
+     *
+     * @return a positive number of columns.
+     */
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    /**
+     * Getter for the number of lines of the map.
+     *
+     * @return a positive number of lines.
+     */
+    public int getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    /**
+     * Getter for the number of cells that belong to the path.
+     *
+     * @return a positive number of cells.
+     */
+    public int getPathCells() {
+        return pathCells;
+    }
+
+    /**
+     * Getter for the position where the path begins.
+     *
+     * @return the position of the begin cell.
+     */
+    public Position getBegin() {
+        return begin;
+    }
+
+    /**
+     * Getter for the position where the path ends.
+     *
+     * @return the position of the end cell.
+     */
+    public Position getEnd() {
+        return end;
+    }
+
+    /**
+     * Getter for the positions of the towers.
+     *
+     * @return an unmodifiable list of positions, in row-major order.
+     */
+    public List<Position> getTowers() {
+        return towers;
+    }
+
+    /**
+     * Checks if a cell belongs to the path.
+     *
+     * @param coordinateX coordinate in the XX axis, inside the map.
+     * @param coordinateY coordinate in the YY axis, inside the map.
+     *
+     * @return true if the cell belongs to the path, false otherwise.
+     */
+    public boolean isPath(int coordinateX, int coordinateY) {
+        assert coordinateX >= 0 && coordinateX < numberOfColumns;
+        assert coordinateY >= 0 && coordinateY < numberOfLines;
+
+        return isPath(coordinateY * numberOfColumns + coordinateX);
+    }
+
+    /**
+     * Checks if a cell belongs to the path.
+     *
+     * @param cell packed index of the cell, y * numberOfColumns + x.
+     *
+     * @return true if the cell belongs to the path, false otherwise.
+     */
+    public boolean isPath(int cell) {
+        assert cell >= 0 && cell < numberOfColumns * numberOfLines;
+
+        return (path[cell >>> 6] & 1L << cell) != 0;
+    }
+}
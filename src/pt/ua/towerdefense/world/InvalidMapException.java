@@ -0,0 +1,21 @@
+package pt.ua.towerdefense.world;
+
+/**
+ * Exception thrown when a map file does not describe a valid map.
+ * The message explains what is wrong, and is meant to be shown to the user.
+ *
+ * @author Eduardo Sousa
+ */
+public class InvalidMapException extends Exception {
+    /* Version of the serialized form */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for the exception.
+     *
+     * @param message explanation of what is wrong with the map.
+     */
+    public InvalidMapException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,207 @@
+package pt.ua.towerdefense.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Class that loads maps from text files.
+ * Each line of the file is a line of the map, and each character a cell:
+ * 'B' is where the path begins, 'E' where it ends, 'X' the rest of the path,
+ * 'T' a tower and '#' a wall. Letters may also be in lower case.<br>
+ * The file is memory-mapped, and since every line has the same length, the lines
+ * are validated and classified in parallel, in ranges of lines, straight into the
+ * path bitmap of the map, without copying them into strings. Each range covers a
+ * multiple of 64 lines, so that no two ranges set bits in the same word.
+ *
+ * @author Eduardo Sousa
+ */
+public class MapLoader {
+    /* Approximate number of bytes of the file scanned by each parallel task */
+    private static final int BYTES_PER_TASK = 1 << 20;
+
+    /* Message for maps whose lines do not all have the same length */
+    private static final String RAGGED_LINES = "All the lines of the map must have the same length.";
+
+    /* Message for maps with an unknown symbol */
+    private static final String UNKNOWN_SYMBOL = "Unrecognized symbol in map definition. Allowed symbols: B, E, T, X, #.";
+
+    /**
+     * Loads a map file.
+     *
+     * @param file path of the map file.
+     *
+     * @return the loaded map.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidMapException if the file does not describe a valid map.
+     */
+    public static GameMap load(Path file) throws IOException, InvalidMapException {
+        assert file != null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if(size == 0)
+                throw new InvalidMapException("Map must not be empty.");
+
+            if(size > Integer.MAX_VALUE)
+                throw new InvalidMapException("Map file must be smaller than 2 GB.");
+
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Parses a map from the bytes of a map file.
+     *
+     * @param buffer contents of the file, from position zero up to the limit, not changed by the parser.
+     *
+     * @return the parsed map.
+     *
+     * @throws InvalidMapException if the contents do not describe a valid map.
+     */
+    public static GameMap parse(ByteBuffer buffer) throws InvalidMapException {
+        assert buffer != null;
+
+        int size = buffer.limit();
+        int newline = 0;
+
+        while (newline < size && buffer.get(newline) != '\n')
+            newline++;
+
+        // lines end in '\n' or "\r\n", except possibly the last one
+        int columns = newline > 0 && buffer.get(newline - 1) == '\r' ? newline - 1 : newline;
+        int stride = newline < size ? newline + 1 : size;
+        int remainder = size % stride;
+        int lines = size / stride + (remainder == columns && remainder > 0 ? 1 : 0);
+
+        if(columns == 0)
+            throw new InvalidMapException("Map must not be empty.");
+
+        if(remainder != 0 && remainder != columns)
+            throw new InvalidMapException(RAGGED_LINES);
+
+        if((long) columns * lines > Integer.MAX_VALUE)
+            throw new InvalidMapException("Map must have less than 2^31 cells.");
+
+        long[] path = GameMap.newBitmap(columns, lines);
+        int linesPerTask = (BYTES_PER_TASK / stride + Long.SIZE) / Long.SIZE * Long.SIZE;
+        int tasks = (lines + linesPerTask - 1) / linesPerTask;
+
+        List<Scan> scans = IntStream.range(0, tasks).parallel()
+                .mapToObj(task -> scan(buffer, path, columns, stride, task * linesPerTask,
+                        Math.min(lines, (task + 1) * linesPerTask)))
+                .toList();
+
+        Position begin = null;
+        Position end = null;
+        List<Position> towers = new ArrayList<>();
+
+        for(Scan scan : scans) {
+            if(scan.error != null)
+                throw new InvalidMapException(scan.error);
+
+            for(Position position : scan.begins) {
+                if(begin != null)
+                    throw new InvalidMapException("Map must only contain one begin cell.");
+
+                begin = position;
+            }
+
+            for(Position position : scan.ends) {
+                if(end != null)
+                    throw new InvalidMapException("Map must only contain one end cell.");
+
+                end = position;
+            }
+
+            towers.addAll(scan.towers);
+        }
+
+        if(begin == null || end == null)
+            throw new InvalidMapException("One begin and end cell must be defined in the map.");
+
+        return new GameMap(columns, lines, path, begin, end, towers);
+    }
+
+    /* Validates and classifies a range of lines, setting the bits of their path cells */
+    private static Scan scan(ByteBuffer buffer, long[] path, int columns, int stride, int firstLine, int lastLine) {
+        Scan scan = new Scan();
+        byte[] line = new byte[columns];
+
+        for(int y = firstLine; y < lastLine; y++) {
+            int offset = y * stride;
+            int cell = y * columns;
+
+            buffer.get(offset, line, 0, columns);
+
+            if(offset + columns < buffer.limit() && !endsLine(buffer, offset + columns, stride - columns)) {
+                scan.error = RAGGED_LINES;
+                return scan;
+            }
+
+            for(int x = 0; x < columns; x++) {
+                switch (line[x]) {
+                    case 'X':
+                    case 'x':
+                        GameMap.set(path, cell + x);
+                        break;
+                    case '#':
+                        break;
+                    case 'B':
+                    case 'b':
+                        GameMap.set(path, cell + x);
+                        scan.begins.add(new Position(x, y));
+                        break;
+                    case 'E':
+                    case 'e':
+                        GameMap.set(path, cell + x);
+                        scan.ends.add(new Position(x, y));
+                        break;
+                    case 'T':
+                    case 't':
+                        scan.towers.add(new Position(x, y));
+                        break;
+                    case '\r':
+                    case '\n':
+                        scan.error = RAGGED_LINES;
+                        return scan;
+                    default:
+                        scan.error = UNKNOWN_SYMBOL;
+                        return scan;
+                }
+            }
+        }
+
+        return scan;
+    }
+
+    /* Checks if the bytes at an offset are the line terminator, "\n" or "\r\n" */
+    private static boolean endsLine(ByteBuffer buffer, int offset, int length) {
+        if(length == 1)
+            return buffer.get(offset) == '\n';
+
+        return length == 2 && buffer.get(offset) == '\r' && buffer.get(offset + 1) == '\n';
+    }
+
+    /* Result of the scan of a range of lines */
+    private static class Scan {
+        /* Begin cells found */
+        private final List<Position> begins = new ArrayList<>();
+
+        /* End cells found */
+        private final List<Position> ends = new ArrayList<>();
+
+        /* Towers found, in row-major order */
+        private final List<Position> towers = new ArrayList<>();
+
+        /* First problem found, null if there is none */
+        private String error;
+    }
+}
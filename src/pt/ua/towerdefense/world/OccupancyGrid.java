@@ -0,0 +1,142 @@
+package pt.ua.towerdefense.world;
+
+import pt.ua.towerdefense.monsters.MonsterStore;
+
+import java.util.Arrays;
+
+/**
+ * Class that indexes the monsters by the cell of the map where they are.
+ * Cells are kept in a dense array in row-major order, so that a query
+ * over a region of the map only touches the cells inside that region.
+ * The reverse index, from each monster to its position, is the position
+ * kept in the monster store, and both are updated together.
+ * This class is not thread safe, the access must be guarded by the world state.
+ *
+ * @author Eduardo Sousa
+ */
+public class OccupancyGrid {
+    /* Number of columns of the map */
+    private final int numberOfColumns;
+
+    /* Number of lines of the map */
+    private final int numberOfLines;
+
+    /* Store where the position of each monster is kept */
+    private final MonsterStore store;
+
+    /* Handle of the monster that occupies each cell, NO_HANDLE when the cell is free */
+    private final int[] cells;
+
+    /**
+     * Constructor for the occupancy grid.
+     *
+     * @param numberOfColumns number of columns of the map.
+     * @param numberOfLines number of lines of the map.
+     * @param store store where the position of each monster is kept.
+     */
+    public OccupancyGrid(int numberOfColumns, int numberOfLines, MonsterStore store) {
+        assert numberOfColumns > 0;
+        assert numberOfLines > 0;
+        assert store != null;
+
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfLines = numberOfLines;
+        this.store = store;
+        this.cells = new int[numberOfColumns * numberOfLines];
+
+        Arrays.fill(this.cells, MonsterStore.NO_HANDLE);
+    }
+
+    /**
+     * Getter for the monster that occupies a cell.
+     *
+     * @param coordinateX coordinate in the XX axis.
+     * @param coordinateY coordinate in the YY axis.
+     *
+     * @return the handle of the monster in that cell, or NO_HANDLE if the cell is free.
+     */
+    public int get(int coordinateX, int coordinateY) {
+        assert isInside(coordinateX, coordinateY);
+
+        return cells[coordinateY * numberOfColumns + coordinateX];
+    }
+
+    /**
+     * Getter for the monster that occupies a position.
+     *
+     * @param position position to look at.
+     *
+     * @return the handle of the monster in that position, or NO_HANDLE if the position is free.
+     */
+    public int get(Position position) {
+        assert position != null;
+
+        return get(position.getCoordinateX(), position.getCoordinateY());
+    }
+
+    /**
+     * Places a monster, that is not yet in the grid, in the free position kept in the store.
+     *
+     * @param handle handle of the monster to be placed.
+     */
+    public void put(int handle) {
+        int x = store.getCoordinateX(handle);
+        int y = store.getCoordinateY(handle);
+
+        assert get(x, y) == MonsterStore.NO_HANDLE;
+
+        cells[y * numberOfColumns + x] = handle;
+
+        assert get(x, y) == handle;
+    }
+
+    /**
+     * Moves a monster that is in the grid to a free position, updating the store.
+     *
+     * @param handle handle of the monster to be moved.
+     * @param coordinateX coordinate in the XX axis where the monster is moved to.
+     * @param coordinateY coordinate in the YY axis where the monster is moved to.
+     */
+    public void move(int handle, int coordinateX, int coordinateY) {
+        int x = store.getCoordinateX(handle);
+        int y = store.getCoordinateY(handle);
+
+        assert get(x, y) == handle;
+        assert get(coordinateX, coordinateY) == MonsterStore.NO_HANDLE;
+
+        cells[y * numberOfColumns + x] = MonsterStore.NO_HANDLE;
+        cells[coordinateY * numberOfColumns + coordinateX] = handle;
+        store.setPosition(handle, coordinateX, coordinateY);
+
+        assert get(coordinateX, coordinateY) == handle;
+        assert get(x, y) == MonsterStore.NO_HANDLE;
+    }
+
+    /**
+     * Removes a monster from the grid, freeing its position.
+     *
+     * @param handle handle of the monster to be removed.
+     */
+    public void remove(int handle) {
+        int x = store.getCoordinateX(handle);
+        int y = store.getCoordinateY(handle);
+
+        assert get(x, y) == handle;
+
+        cells[y * numberOfColumns + x] = MonsterStore.NO_HANDLE;
+
+        assert get(x, y) == MonsterStore.NO_HANDLE;
+    }
+
+    /**
+     * Method to verify if the coordinates are inside the grid.
+     *
+     * @param coordinateX coordinate in the XX axis.
+     * @param coordinateY coordinate in the YY axis.
+     *
+     * @return true if the coordinates are inside the grid, false otherwise.
+     */
+    public boolean isInside(int coordinateX, int coordinateY) {
+        return coordinateX >= 0 && coordinateX < numberOfColumns && coordinateY >= 0 && coordinateY < numberOfLines;
+    }
+}
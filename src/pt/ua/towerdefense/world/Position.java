@@ -1,7 +1,5 @@
 package pt.ua.towerdefense.world;
 
-import java.util.Objects;
-
 /**
  * Class that represents the position of an object in the
  * map. Objects of this class are immutable.
@@ -49,7 +47,7 @@ public class Position {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.coordinateX, this.coordinateY);
+        return 31 * this.coordinateX + this.coordinateY;
     }
 
     @Override
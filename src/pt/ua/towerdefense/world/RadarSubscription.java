@@ -0,0 +1,122 @@
+package pt.ua.towerdefense.world;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class that represents the interest of a tower in the path cells inside its radar range.
+ * The world state signals the subscription each time a monster enters one of those cells,
+ * so that an idle tower is only woken up when there is something to see.
+ *
+ * @author Eduardo Sousa
+ */
+public class RadarSubscription {
+    /* Lock that guards the number of events */
+    private final ReentrantLock lock;
+
+    /* Condition where the tower waits for an event */
+    private final Condition signalled;
+
+    /* Number of times a monster entered one of the subscribed cells */
+    private long events;
+
+    /* True once the tower stopped, so that it never waits again */
+    private boolean closed;
+
+    /**
+     * Constructor for the radar subscription.
+     */
+    public RadarSubscription() {
+        this.lock = new ReentrantLock();
+        this.signalled = lock.newCondition();
+        this.events = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Getter for the number of events signalled so far.<br>
+     * Must be read before checking the radar, so that no event is lost.
+     *
+     * @return a non negative number of events.
+     */
+    public long getEvents() {
+        lock.lock();
+
+        try {
+            assert events >= 0;
+
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Signals that a monster entered one of the subscribed cells.
+     */
+    public void signal() {
+        lock.lock();
+
+        try {
+            events++;
+            signalled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up the tower for good, when it stops.<br>
+     * Afterwards, await never blocks.
+     */
+    public void close() {
+        lock.lock();
+
+        try {
+            closed = true;
+            signalled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if the subscription was closed.
+     *
+     * @return true if the tower stopped.
+     */
+    public boolean isClosed() {
+        lock.lock();
+
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a monster enters one of the subscribed cells after the given number of events,
+     * or the subscription is closed.
+     *
+     * @param seenEvents number of events already seen by the tower.
+     */
+    public void await(long seenEvents) {
+        assert seenEvents >= 0;
+
+        lock.lock();
+
+        try {
+            while (events == seenEvents && !closed)
+                try {
+                    signalled.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+
+            assert events > seenEvents || closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
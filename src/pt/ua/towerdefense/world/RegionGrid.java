@@ -0,0 +1,91 @@
+package pt.ua.towerdefense.world;
+
+/**
+ * Class that splits a map into a grid of rectangular regions.
+ * Regions are numbered in row-major order, and all of them have the same size,
+ * except for the ones in the last row and column of the grid, that may be smaller.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class RegionGrid {
+    /* Number of columns of the map */
+    private final int numberOfColumns;
+
+    /* Number of lines of the map */
+    private final int numberOfLines;
+
+    /* Number of rows of regions */
+    private final int regionRows;
+
+    /* Number of columns of regions */
+    private final int regionColumns;
+
+    /* Number of map columns covered by each region */
+    private final int regionWidth;
+
+    /* Number of map lines covered by each region */
+    private final int regionHeight;
+
+    /**
+     * Constructor for the region grid.<br>
+     * The number of rows and columns of regions is reduced when there are not enough cells to fill them.
+     *
+     * @param numberOfColumns number of columns of the map.
+     * @param numberOfLines number of lines of the map.
+     * @param regionRows number of rows of regions.
+     * @param regionColumns number of columns of regions.
+     */
+    public RegionGrid(int numberOfColumns, int numberOfLines, int regionRows, int regionColumns) {
+        assert numberOfColumns > 0;
+        assert numberOfLines > 0;
+        assert regionRows > 0;
+        assert regionColumns > 0;
+
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfLines = numberOfLines;
+        this.regionWidth = (numberOfColumns + regionColumns - 1) / regionColumns;
+        this.regionHeight = (numberOfLines + regionRows - 1) / regionRows;
+        this.regionColumns = (numberOfColumns + regionWidth - 1) / regionWidth;
+        this.regionRows = (numberOfLines + regionHeight - 1) / regionHeight;
+
+        assert this.regionColumns <= regionColumns && this.regionRows <= regionRows;
+    }
+
+    /**
+     * Getter for the number of regions.
+     *
+     * @return a positive number of regions.
+     */
+    public int getNumberOfRegions() {
+        return regionRows * regionColumns;
+    }
+
+    /**
+     * Getter for the region of a cell.
+     *
+     * @param coordinateX coordinate in the XX axis, inside the map.
+     * @param coordinateY coordinate in the YY axis, inside the map.
+     *
+     * @return the index of the region.
+     */
+    public int getRegion(int coordinateX, int coordinateY) {
+        assert coordinateX >= 0 && coordinateX < numberOfColumns;
+        assert coordinateY >= 0 && coordinateY < numberOfLines;
+
+        return coordinateY / regionHeight * regionColumns + coordinateX / regionWidth;
+    }
+
+    /**
+     * Getter for the region of a cell.
+     *
+     * @param cell packed index of the cell, y * numberOfColumns + x.
+     *
+     * @return the index of the region.
+     */
+    public int getRegion(int cell) {
+        assert cell >= 0 && cell < numberOfColumns * numberOfLines;
+
+        return getRegion(cell % numberOfColumns, cell / numberOfColumns);
+    }
+}
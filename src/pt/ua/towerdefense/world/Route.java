@@ -0,0 +1,236 @@
+package pt.ua.towerdefense.world;
+
+import pt.ua.towerdefense.definitions.Direction;
+import pt.ua.towerdefense.monsters.MonsterPhase;
+
+import java.util.Arrays;
+
+/**
+ * Class that represents the route the monsters take from the beginning to the end of the path.
+ * The route is computed once, by following the wall at the left side of a monster that enters
+ * the world with the given heading, and is kept as an ordered array of steps. Each step is a
+ * move to the next cell or a turn on the spot, together with the cell and heading of the
+ * monster after it. Monsters only keep the index of their next step. The progress of each
+ * cell, the number of steps taken when a monster first stands on it, orders the cells along
+ * the route. Only the cells of the route have a progress, so the progress is kept in a table
+ * sized to the route and not to the map.<br>
+ * This class is immutable and may be shared by every monster.
+ *
+ * @author Eduardo Sousa
+ */
+public class Route {
+    /**
+     * Progress of the cells that are not on the route.
+     */
+    public static final int NOT_ON_ROUTE = -1;
+
+    /* Directions indexed by their ordinal */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /* Phases indexed by their ordinal */
+    private static final MonsterPhase[] PHASES = MonsterPhase.values();
+
+    /* Cell where the route begins */
+    private final int beginning;
+
+    /* Heading of the monsters when they enter the world */
+    private final Direction initialDirection;
+
+    /* Ordinal of the phase of each step, MOVING or one of the rotations */
+    private final byte[] phases;
+
+    /* Cell of the monster after each step */
+    private final int[] cells;
+
+    /* Ordinal of the heading of the monster after each step */
+    private final byte[] directions;
+
+    /* Number of steps taken when a monster first stands on each cell of the route */
+    private final CellTable progress;
+
+    /* True if the last step reaches the end of the path */
+    private final boolean reachesEnd;
+
+    /**
+     * Constructor for the route, following the path of the world.
+     *
+     * @param world world whose path is followed.
+     * @param initialDirection heading of the monsters when they enter the world.
+     */
+    public Route(WorldState world, Direction initialDirection) {
+        assert world != null;
+        assert initialDirection != null;
+        assert world.isPositionInPath(world.getPathBeginning());
+
+        Position begin = world.getPathBeginning();
+        Position end = world.getPathEnd();
+        int endCell = world.cellOf(end.getCoordinateX(), end.getCoordinateY());
+        int cell = world.cellOf(begin.getCoordinateX(), begin.getCoordinateY());
+        Direction direction = initialDirection;
+
+        // a state that repeats means that the wall loops around without reaching the end,
+        // so each cell of the route keeps a bit for each heading a monster had on it
+        CellTable visited = new CellTable(0);
+        byte[] phases = new byte[16];
+        int[] cells = new int[16];
+        byte[] directions = new byte[16];
+        int length = 0;
+
+        this.progress = new CellTable(NOT_ON_ROUTE);
+        this.progress.put(cell, 0);
+
+        while (cell != endCell && (visited.get(cell) & 1 << direction.ordinal()) == 0) {
+            visited.put(cell, visited.get(cell) | 1 << direction.ordinal());
+
+            MonsterPhase phase;
+
+            if(world.isPathInDirection(cell, direction)) {
+                phase = MonsterPhase.MOVING;
+                cell = world.neighbourOf(cell, direction);
+            } else if(world.isPathInDirection(cell, anticlockwise(direction))) {
+                phase = MonsterPhase.ROTATING_ANTICLOCKWISE;
+                direction = anticlockwise(direction);
+            } else {
+                phase = MonsterPhase.ROTATING_CLOCKWISE;
+                direction = clockwise(direction);
+            }
+
+            if(length == phases.length) {
+                phases = Arrays.copyOf(phases, length * 2);
+                cells = Arrays.copyOf(cells, length * 2);
+                directions = Arrays.copyOf(directions, length * 2);
+            }
+
+            phases[length] = (byte) phase.ordinal();
+            cells[length] = cell;
+            directions[length] = (byte) direction.ordinal();
+            length++;
+
+            if(progress.get(cell) == NOT_ON_ROUTE)
+                progress.put(cell, length);
+        }
+
+        this.beginning = world.cellOf(begin.getCoordinateX(), begin.getCoordinateY());
+        this.initialDirection = initialDirection;
+        this.phases = Arrays.copyOf(phases, length);
+        this.cells = Arrays.copyOf(cells, length);
+        this.directions = Arrays.copyOf(directions, length);
+        this.reachesEnd = cell == endCell;
+    }
+
+    /**
+     * Checks if following the route leads to the end of the path.
+     *
+     * @return true if the end of the path is reached, false if the route loops forever.
+     */
+    public boolean reachesEnd() {
+        return reachesEnd;
+    }
+
+    /**
+     * Getter for the number of steps of the route.
+     *
+     * @return a non negative number of steps.
+     */
+    public int getLength() {
+        return phases.length;
+    }
+
+    /**
+     * Getter for the cell where the route begins.
+     *
+     * @return the packed index of the cell.
+     */
+    public int getBeginning() {
+        return beginning;
+    }
+
+    /**
+     * Getter for the heading of the monsters when they enter the world.
+     *
+     * @return the initial heading.
+     */
+    public Direction getInitialDirection() {
+        return initialDirection;
+    }
+
+    /**
+     * Getter for the phase of a step.
+     *
+     * @param step index of the step.
+     *
+     * @return MOVING or one of the rotations.
+     */
+    public MonsterPhase getPhase(int step) {
+        assert step >= 0 && step < phases.length;
+
+        return PHASES[phases[step]];
+    }
+
+    /**
+     * Getter for the cell of the monster after a step.
+     *
+     * @param step index of the step.
+     *
+     * @return the packed index of the cell.
+     */
+    public int getCell(int step) {
+        assert step >= 0 && step < cells.length;
+
+        return cells[step];
+    }
+
+    /**
+     * Getter for the heading of the monster after a step.
+     *
+     * @param step index of the step.
+     *
+     * @return the heading.
+     */
+    public Direction getDirection(int step) {
+        assert step >= 0 && step < directions.length;
+
+        return DIRECTIONS[directions[step]];
+    }
+
+    /**
+     * Getter for the progress of a cell along the route.
+     *
+     * @param cell packed index of the cell.
+     *
+     * @return the number of steps taken when a monster first stands on the cell, or NOT_ON_ROUTE.
+     */
+    public int getProgress(int cell) {
+        assert cell >= 0;
+
+        return progress.get(cell);
+    }
+
+    /* Heading after a quarter turn to the left */
+    private static Direction anticlockwise(Direction direction) {
+        switch (direction) {
+            case NORTH:
+                return Direction.WEST;
+            case WEST:
+                return Direction.SOUTH;
+            case SOUTH:
+                return Direction.EAST;
+            default:
+                return Direction.NORTH;
+        }
+    }
+
+    /* Heading after a quarter turn to the right */
+    private static Direction clockwise(Direction direction) {
+        switch (direction) {
+            case NORTH:
+                return Direction.EAST;
+            case EAST:
+                return Direction.SOUTH;
+            case SOUTH:
+                return Direction.WEST;
+            default:
+                return Direction.NORTH;
+        }
+    }
+}
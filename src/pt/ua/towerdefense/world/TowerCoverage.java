@@ -0,0 +1,169 @@
+package pt.ua.towerdefense.world;
+
+import java.util.Arrays;
+
+/**
+ * Class that represents the cells of the route that a tower covers.
+ * Towers and the path never change, so the coverage is computed once, when the tower
+ * is created, and keeps only the cells that a monster can stand on, ordered by their
+ * progress along the route. Radar sweeps go through this table instead of the whole
+ * square around the tower, so their cost depends on the path cells in range. The regions
+ * of the world that hold these cells are also kept, in ascending order, so that the radar
+ * only locks the regions it reads.<br>
+ * This class is immutable.
+ *
+ * @author Eduardo Sousa
+ */
+public class TowerCoverage {
+    /* Route cells inside the radar range, ordered by their progress along the route */
+    private final int[] radarCells;
+
+    /* True for the radar cells that are also inside the shot range */
+    private final boolean[] inShotRange;
+
+    /* Number of radar cells that are inside the shot range */
+    private final int shotCount;
+
+    /* Distinct regions of the radar cells, in ascending order */
+    private final int[] regions;
+
+    /**
+     * Constructor for the tower coverage.
+     *
+     * @param world world where the tower is.
+     * @param route route followed by the monsters.
+     * @param position position of the tower.
+     * @param radarRange radar range of the tower (radius in cells).
+     * @param shotRange shot range of the tower (radius in cells), not larger than the radar range.
+     */
+    public TowerCoverage(WorldState world, Route route, Position position, int radarRange, int shotRange) {
+        assert world != null;
+        assert route != null;
+        assert position != null;
+        assert world.isPositionInMap(position);
+        assert radarRange > 0;
+        assert shotRange > 0 && shotRange <= radarRange;
+
+        int minX = Math.max(position.getCoordinateX() - radarRange, 0);
+        int maxX = Math.min(position.getCoordinateX() + radarRange, world.getNumberOfColumns() - 1);
+        int minY = Math.max(position.getCoordinateY() - radarRange, 0);
+        int maxY = Math.min(position.getCoordinateY() + radarRange, world.getNumberOfLines() - 1);
+
+        // progress in the high half and cell in the low half, so that sorting orders by progress
+        long[] keys = new long[(maxX - minX + 1) * (maxY - minY + 1)];
+        int count = 0;
+
+        for(int x = minX; x <= maxX; x++) {
+            for(int y = minY; y <= maxY; y++) {
+                int cell = world.cellOf(x, y);
+
+                if(route.getProgress(cell) != Route.NOT_ON_ROUTE)
+                    keys[count++] = ((long) route.getProgress(cell) << 32) | cell;
+            }
+        }
+
+        Arrays.sort(keys, 0, count);
+
+        this.radarCells = new int[count];
+        this.inShotRange = new boolean[count];
+
+        int shots = 0;
+
+        for(int i = 0; i < count; i++) {
+            int cell = (int) keys[i];
+
+            radarCells[i] = cell;
+            inShotRange[i] = Math.abs(world.getCoordinateX(cell) - position.getCoordinateX()) <= shotRange &&
+                    Math.abs(world.getCoordinateY(cell) - position.getCoordinateY()) <= shotRange;
+
+            if(inShotRange[i])
+                shots++;
+        }
+
+        this.shotCount = shots;
+        this.regions = Arrays.stream(radarCells).map(cell -> world.getRegions().getRegion(cell)).distinct().sorted()
+                .toArray();
+    }
+
+    /**
+     * Checks if the tower can never shoot a monster.
+     *
+     * @return true if there is no route cell inside the shot range.
+     */
+    public boolean isEmpty() {
+        return shotCount == 0;
+    }
+
+    /**
+     * Getter for the number of route cells inside the radar range.
+     *
+     * @return a non negative number of cells.
+     */
+    public int getRadarSize() {
+        return radarCells.length;
+    }
+
+    /**
+     * Getter for a route cell inside the radar range.
+     *
+     * @param index index of the cell in the coverage, in the order of the route.
+     *
+     * @return the packed index of the cell.
+     */
+    public int getRadarCell(int index) {
+        assert index >= 0 && index < radarCells.length;
+
+        return radarCells[index];
+    }
+
+    /**
+     * Checks if a route cell inside the radar range is also inside the shot range.
+     *
+     * @param index index of the cell in the coverage.
+     *
+     * @return true if the tower can shoot at that cell.
+     */
+    public boolean isInShotRange(int index) {
+        assert index >= 0 && index < inShotRange.length;
+
+        return inShotRange[index];
+    }
+
+    /**
+     * Getter for the number of distinct regions of the route cells inside the radar range.
+     *
+     * @return a non negative number of regions.
+     */
+    public int getNumberOfRegions() {
+        return regions.length;
+    }
+
+    /**
+     * Getter for a region of the route cells inside the radar range.
+     *
+     * @param index index of the region, in ascending order of region.
+     *
+     * @return the index of the region in the world.
+     */
+    public int getRegion(int index) {
+        assert index >= 0 && index < regions.length;
+
+        return regions[index];
+    }
+
+    /**
+     * Checks if a cell is a route cell inside the shot range.
+     *
+     * @param cell packed index of the cell.
+     *
+     * @return true if the tower can shoot at that cell.
+     */
+    public boolean coversShot(int cell) {
+        for(int i = 0; i < radarCells.length; i++) {
+            if(radarCells[i] == cell)
+                return inShotRange[i];
+        }
+
+        return false;
+    }
+}
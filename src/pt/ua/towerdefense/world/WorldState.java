@@ -1,26 +1,63 @@
 package pt.ua.towerdefense.world;
 
-import pt.ua.concurrent.CThread;
-import pt.ua.gboard.Gelem;
-import pt.ua.gboard.games.Labyrinth;
 import pt.ua.towerdefense.definitions.Direction;
-import pt.ua.towerdefense.monsters.Monster;
+import pt.ua.towerdefense.monitoring.MethodStats;
+import pt.ua.towerdefense.monitoring.SimulationListener;
+import pt.ua.towerdefense.monitoring.WorldStateStats;
+import pt.ua.towerdefense.monsters.DamageBuffer;
+import pt.ua.towerdefense.monsters.MonsterStore;
+import pt.ua.towerdefense.rendering.Renderer;
 import pt.ua.towerdefense.towers.Tower;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Class that encapsulates and monitors the world state.
+ * The map is split into a grid of regions, each with its own lock, that
+ * guards the monster locations and cell subscriptions of its cells. Queries
+ * use optimistic reads that are validated and retried under a read lock,
+ * while mutations are serialized by the write lock of the regions they touch,
+ * always taken in ascending order of region, so that mutations in different
+ * regions run in parallel.
+ * Monsters that must wait for the world to change wait on a separate
+ * condition, so that no lock is held while they are blocked. Idle towers
+ * wait on their radar subscription, and are only woken up when a monster
+ * enters a path cell inside their radar range. No method blocks inside
+ * a monitor, so virtual threads never pin their carrier. The terrain of the
+ * map never changes, so it is queried without any locking.<br>
+ * The state of the monsters in the world is kept in a monster store,
+ * where each monster is identified by its handle. The methods used on every
+ * cycle identify cells by their packed index, y * numberOfColumns + x, and
+ * write their results into buffers supplied by the caller, so that they do
+ * not allocate.<br>
+ * Every method that takes a lock records how long it waited for it and held it,
+ * and the blocking methods record how long they waited and how many times they were
+ * woken up, in statistics that may be published through JMX.
  *
  * @author Eduardo Sousa
  */
 public class WorldState {
-    /* Gboard's labyrinth */
-    private final Labyrinth maze;
+    /**
+     * Value that represents the absence of a cell.
+     */
+    public static final int NO_CELL = -1;
+
+    /* Map of the world, with the terrain of each cell */
+    private final GameMap map;
+
+    /* Regions of the map, each guarded by its own lock */
+    private final RegionGrid regions;
+
+    /* Number of columns of the map */
+    private final int numberOfColumns;
+
+    /* Number of lines of the map */
+    private final int numberOfLines;
 
     /* Position where the maze begins */
     private final Position begin;
@@ -28,102 +65,337 @@ public class WorldState {
     /* Position where the maze ends */
     private final Position end;
 
-    /* Image that represents a monster */
-    private final Gelem monsterGelem;
+    /* Renderer that shows the world */
+    private final Renderer renderer;
 
-    /* Image that represents a tower */
-    private final Gelem towerGelem;
+    /* Listener of the events of the simulation */
+    private final SimulationListener listener;
 
     /* Tower locations */
     private final ConcurrentMap<Position, Tower> towerLocations;
 
-    /* Monster locations */
-    private final ConcurrentMap<Position, Monster> monsterLocations;
+    /* State of the monsters in the world */
+    private final MonsterStore monsters;
+
+    /* Monster locations, indexed by cell */
+    private final OccupancyGrid occupancy;
+
+    /* Radar subscriptions of the towers that cover each watched cell */
+    private final CellSubscriptions cellSubscriptions;
+
+    /* Radar subscription of each tower */
+    private final ConcurrentMap<Tower, RadarSubscription> radarSubscriptions;
+
+    /* Lock of each region, that guards the monster locations and the cell subscriptions of its cells */
+    private final StampedLock[] locks;
+
+    /* Lock that guards the condition where monsters wait for the world to change */
+    private final ReentrantLock changeLock;
+
+    /* Condition where monsters wait for the world to change */
+    private final Condition changed;
+
+    /* Number of changes made to the world */
+    private final AtomicLong changeVersion;
+
+    /* Number of monsters waiting for the world to change, only changed under the change lock */
+    private volatile int changeWaiters;
+
+    /* Damage recorded by the shots until it is applied, null while shots inflict damage right away */
+    private DamageBuffer damageBuffer;
+
+    /* Statistics of each method */
+    private final MethodStats addTowerStats = new MethodStats("addTower");
+    private final MethodStats addMonsterStats = new MethodStats("addMonster");
+    private final MethodStats tryAddMonsterStats = new MethodStats("tryAddMonster");
+    private final MethodStats removeMonsterStats = new MethodStats("removeMonster");
+    private final MethodStats isPositionAvailableStats = new MethodStats("isPositionAvailable");
+    private final MethodStats getMonstersInRangeStats = new MethodStats("getMonstersInRange");
+    private final MethodStats scanRadarStats = new MethodStats("scanRadar");
+    private final MethodStats shootPositionStats = new MethodStats("shootPosition");
+    private final MethodStats moveMonsterStats = new MethodStats("moveMonster");
+    private final MethodStats tryMoveMonsterStats = new MethodStats("tryMoveMonster");
+
+    /* Statistics of the world state, including the ones of each method */
+    private final WorldStateStats stats = new WorldStateStats(addTowerStats, addMonsterStats, tryAddMonsterStats,
+            removeMonsterStats, isPositionAvailableStats, getMonstersInRangeStats, scanRadarStats, shootPositionStats,
+            moveMonsterStats, tryMoveMonsterStats);
 
     /**
      * Constructor for the world state.
      *
-     * @param maze labyrinth object where monsters and tower should be placed.
-     * @param begin position where the monsters start their journey.
-     * @param end position where the monsters must reach.
-     * @param monsterGelem image that represents the monsters.
-     * @param towerGelem image that represents the towers.
-     */
-    public WorldState(Labyrinth maze, Position begin, Position end, Gelem monsterGelem, Gelem towerGelem) {
-        assert maze != null;
-        assert begin != null;
-        assert begin.getCoordinateX() >= 0 && begin.getCoordinateX() < maze.numberOfColumns;
-        assert begin.getCoordinateY() >= 0 && begin.getCoordinateY() < maze.numberOfLines;
-        assert end != null;
-        assert end.getCoordinateX() >= 0 && end.getCoordinateX() < maze.numberOfColumns;
-        assert end.getCoordinateY() >= 0 && end.getCoordinateY() < maze.numberOfLines;
-        assert monsterGelem != null;
-        assert towerGelem != null;
-
-        this.maze = maze;
-        this.begin = begin;
-        this.end = end;
-        this.monsterGelem = monsterGelem;
-        this.towerGelem = towerGelem;
+     * @param map map where monsters and towers should be placed, with the path the monsters must walk.
+     * @param regions regions of the map, with the same size as the map.
+     * @param capacity maximum number of monsters in the world at the same time, at most the number of path cells.
+     * @param renderer renderer that shows the world.
+     * @param listener listener of the events of the simulation.
+     */
+    public WorldState(GameMap map, RegionGrid regions, int capacity, Renderer renderer, SimulationListener listener) {
+        assert map != null;
+        assert regions != null;
+        assert capacity > 0 && capacity <= map.getPathCells();
+        assert renderer != null;
+        assert listener != null;
+
+        this.map = map;
+        this.regions = regions;
+        this.numberOfColumns = map.getNumberOfColumns();
+        this.numberOfLines = map.getNumberOfLines();
+        this.begin = map.getBegin();
+        this.end = map.getEnd();
+        this.renderer = renderer;
+        this.listener = listener;
         this.towerLocations = new ConcurrentHashMap<>();
-        this.monsterLocations = new ConcurrentHashMap<>();
+        this.monsters = new MonsterStore(capacity);
+        this.occupancy = new OccupancyGrid(numberOfColumns, numberOfLines, monsters);
+        this.cellSubscriptions = new CellSubscriptions();
+        this.radarSubscriptions = new ConcurrentHashMap<>();
+        this.locks = new StampedLock[regions.getNumberOfRegions()];
+        this.changeLock = new ReentrantLock();
+        this.changed = changeLock.newCondition();
+        this.changeVersion = new AtomicLong();
+        this.changeWaiters = 0;
+        this.damageBuffer = null;
+
+        for(int i = 0; i < locks.length; i++)
+            this.locks[i] = new StampedLock();
     }
 
     /**
-     * Method to add a tower to the world state.
+     * Method to add a tower to the world state.<br>
+     * Subscribes the tower to the route cells inside its radar range.
      *
      * @param tower a tower object to be added.
      */
-    public synchronized void addTower(Tower tower) {
+    public void addTower(Tower tower) {
         assert tower != null;
         assert isPositionInMap(tower.getPosition());
         assert isPositionForTower(tower.getPosition());
 
-        this.maze.board.draw(towerGelem, tower.getPosition().getCoordinateY(), tower.getPosition().getCoordinateX(), 1);
-        this.towerLocations.put(tower.getPosition(), tower);
+        RadarSubscription subscription = new RadarSubscription();
+        TowerCoverage coverage = tower.getCoverage();
+        Position pos = tower.getPosition();
+
+        long requested = System.nanoTime();
+
+        // the radar cells may be in any region, and towers are only added when the game starts
+        for(StampedLock regionLock : locks)
+            regionLock.writeLock();
+
+        long acquired = System.nanoTime();
+
+        try {
+            this.renderer.drawTower(pos.getCoordinateX(), pos.getCoordinateY());
+            this.towerLocations.put(tower.getPosition(), tower);
+
+            for(int i = 0; i < coverage.getRadarSize(); i++)
+                cellSubscriptions.add(coverage.getRadarCell(i), subscription);
+
+            this.radarSubscriptions.put(tower, subscription);
+
+            assert !towerLocations.isEmpty();
+            assert towerLocations.containsKey(tower.getPosition());
+            assert radarSubscriptions.containsKey(tower);
+        } finally {
+            for(int i = locks.length - 1; i >= 0; i--)
+                locks[i].tryUnlockWrite();
 
-        assert !towerLocations.isEmpty();
-        assert towerLocations.containsKey(tower.getPosition());
+            addTowerStats.recordLock(requested, acquired, System.nanoTime());
+        }
+    }
+
+    /**
+     * Removes every tower and monster from the world, so that another game can be played on it.<br>
+     * Neither the listener nor the renderer are told, since no entity leaves the world in the game.
+     * Shots inflict damage right away again. Must not be called while any entity is running.
+     */
+    public void clear() {
+        for(StampedLock regionLock : locks)
+            regionLock.writeLock();
+
+        try {
+            for(int handle = 0; handle < monsters.getCapacity(); handle++) {
+                if(monsters.isAllocated(handle))
+                    this.occupancy.remove(handle);
+            }
+
+            this.monsters.clear();
+            this.towerLocations.clear();
+            this.radarSubscriptions.clear();
+            this.cellSubscriptions.clear();
+            this.damageBuffer = null;
+        } finally {
+            for(int i = locks.length - 1; i >= 0; i--)
+                locks[i].tryUnlockWrite();
+        }
     }
 
     /**
-     * Method to add a monster to the world state.
+     * Method to add a monster to the beginning of the path.<br>
+     * Blocks while the beginning of the path is occupied.
      *
-     * @param monster a monster object to be added.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster in the monster store.
      */
-    public synchronized void addMonster(Monster monster) {
-        assert monster != null;
-        assert isPositionInMap(monster.getActualPosition());
+    public int addMonster(Direction direction, int health, long id) {
+        assert direction != null;
+        assert health > 0;
 
-        while(!isPositionAvailable(monster.getActualPosition()))
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        int handle;
+
+        long started = System.nanoTime();
+        int wakeUps = 0;
+
+        while (true) {
+            long version = changeVersion();
+
+            handle = tryAddMonster(direction, health, id);
+
+            if(handle != MonsterStore.NO_HANDLE)
+                break;
+
+            awaitChange(version);
+            wakeUps++;
+        }
+
+        if(wakeUps > 0) {
+            long waited = System.nanoTime() - started;
+
+            addMonsterStats.recordWait(waited, wakeUps);
+            listener.worldWaited("addMonster", id, cellIndex(begin), waited);
+        }
+
+        assert monsters.isAllocated(handle);
+
+        return handle;
+    }
 
-        this.maze.board.draw(monsterGelem, begin.getCoordinateY(), begin.getCoordinateX(), 1);
-        this.monsterLocations.put(begin, monster);
+    /**
+     * Method to add a monster to the beginning of the path, if it is free.
+     *
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster in the monster store, or NO_HANDLE if the beginning of the path is occupied.
+     */
+    public int tryAddMonster(Direction direction, int health, long id) {
+        assert direction != null;
+        assert health > 0;
+
+        RadarSubscription[] subscriptions;
+        int handle;
+        StampedLock lock = locks[regions.getRegion(begin.getCoordinateX(), begin.getCoordinateY())];
+        long requested = System.nanoTime();
+        long stamp = lock.writeLock();
+        long acquired = System.nanoTime();
+
+        try {
+            if(occupancy.get(begin) != MonsterStore.NO_HANDLE)
+                return MonsterStore.NO_HANDLE;
+
+            handle = this.monsters.allocate(begin.getCoordinateX(), begin.getCoordinateY(), direction, health, id);
+            this.renderer.drawMonster(begin.getCoordinateX(), begin.getCoordinateY());
+            this.listener.monsterSpawned(id, cellIndex(begin));
+            this.occupancy.put(handle);
+            subscriptions = cellSubscriptions.get(cellIndex(begin));
+
+            assert occupancy.get(begin) == handle;
+        } finally {
+            lock.unlockWrite(stamp);
+            tryAddMonsterStats.recordLock(requested, acquired, System.nanoTime());
+        }
+
+        signalChange();
+        signalRadars(subscriptions);
 
-        assert !monsterLocations.isEmpty();
-        assert monsterLocations.containsKey(monster.getActualPosition());
+        return handle;
     }
 
     /**
-     * Method to remove a monster when has been killed.
+     * Method to place a monster on a cell of the path, if it is free, when a saved world is restored.<br>
+     * No spawn event is emitted, since the monster entered the world before it was saved.
+     *
+     * @param cell cell of the path where the monster is placed.
+     * @param direction heading of the monster.
+     * @param health health of the monster.
+     * @param id id of the monster.
+     *
+     * @return the handle of the monster in the monster store, or NO_HANDLE if the cell is occupied.
      */
-    public synchronized void removeMonster() {
-        assert CThread.currentThread() instanceof Monster;
+    public int placeMonster(int cell, Direction direction, int health, long id) {
+        assert isCellInMap(cell);
+        assert direction != null;
+        assert health > 0;
+
+        int x = cell % numberOfColumns;
+        int y = cell / numberOfColumns;
+
+        assert isPath(x, y);
+
+        RadarSubscription[] subscriptions;
+        int handle;
+        StampedLock lock = locks[regions.getRegion(x, y)];
+        long stamp = lock.writeLock();
+
+        try {
+            if(occupancy.get(x, y) != MonsterStore.NO_HANDLE)
+                return MonsterStore.NO_HANDLE;
+
+            handle = this.monsters.allocate(x, y, direction, health, id);
+            this.renderer.drawMonster(x, y);
+            this.occupancy.put(handle);
+            subscriptions = cellSubscriptions.get(cell);
+
+            assert occupancy.get(x, y) == handle;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
 
-        Monster monster = (Monster) CThread.currentThread();
+        signalChange();
+        signalRadars(subscriptions);
 
-        Position pos = this.monsterLocations.entrySet().parallelStream().filter(entry -> entry.getValue().equals(monster)).
-                findFirst().get().getKey();
+        return handle;
+    }
 
-        this.maze.board.erase(monsterGelem, pos.getCoordinateY(), pos.getCoordinateX());
-        this.monsterLocations.remove(pos);
+    /**
+     * Method to remove a monster when has been killed or has reached the end of the path.<br>
+     * The handle of the monster is released and must not be used afterwards.
+     *
+     * @param handle handle of the monster to be removed.
+     */
+    public void removeMonster(int handle) {
+        assert monsters.isAllocated(handle);
+
+        // the position of a monster is only changed by the monster itself
+        int x = monsters.getCoordinateX(handle);
+        int y = monsters.getCoordinateY(handle);
+        StampedLock lock = locks[regions.getRegion(x, y)];
+        long requested = System.nanoTime();
+        long stamp = lock.writeLock();
+        long acquired = System.nanoTime();
+
+        try {
+
+            if(monsters.getHealth(handle) > 0)
+                this.listener.monsterArrived(monsters.getEntityId(handle), y * numberOfColumns + x);
+            else
+                this.listener.monsterDied(monsters.getEntityId(handle), y * numberOfColumns + x);
+
+            this.occupancy.remove(handle);
+            this.monsters.release(handle);
+            this.renderer.eraseMonster(x, y);
+
+            assert occupancy.get(x, y) == MonsterStore.NO_HANDLE;
+        } finally {
+            lock.unlockWrite(stamp);
+            removeMonsterStats.recordLock(requested, acquired, System.nanoTime());
+        }
 
-        notifyAll();
+        signalChange();
     }
 
     /**
@@ -133,93 +405,311 @@ public class WorldState {
      *
      * @return true if the position is available, false otherwise.
      */
-    public synchronized boolean isPositionAvailable(Position position) {
-        assert CThread.currentThread() instanceof Monster;
+    public boolean isPositionAvailable(Position position) {
         assert position != null;
         assert isPositionInMap(position);
 
-        return !monsterLocations.containsKey(position);
+        StampedLock lock = locks[regions.getRegion(position.getCoordinateX(), position.getCoordinateY())];
+        long stamp = lock.tryOptimisticRead();
+        boolean available = occupancy.get(position) == MonsterStore.NO_HANDLE;
+
+        if(!lock.validate(stamp)) {
+            long requested = System.nanoTime();
+            stamp = lock.readLock();
+            long acquired = System.nanoTime();
+
+            try {
+                available = occupancy.get(position) == MonsterStore.NO_HANDLE;
+            } finally {
+                lock.unlockRead(stamp);
+                isPositionAvailableStats.recordLock(requested, acquired, System.nanoTime());
+            }
+        } else {
+            isPositionAvailableStats.recordOptimisticRead();
+        }
+
+        return available;
     }
 
     /**
-     * Method to get the monster that are in the radar range of a tower.
+     * Method to get the monsters that are in the radar range of a tower.<br>
+     * Blocks while there are no monsters in range, unless the tower was stopped.
      *
-     * @return positions of monsters inside the radar range.
+     * @param tower tower that uses the radar.
+     * @param found buffer where the coverage indices of the occupied cells are written, in the order of the
+     *              coverage, at least as large as the radar coverage of the tower.
+     * @param health buffer where the health of the monster in each occupied cell is written, in the same order,
+     *               or null if it is not needed.
+     *
+     * @return the number of indices written, only zero if the tower was stopped.
      */
-    public synchronized List<Position> getMonstersInRange() {
-        assert CThread.currentThread() instanceof Tower;
+    public int getMonstersInRange(Tower tower, int[] found, int[] health) {
+        assert tower != null;
+        assert found != null;
 
-        Tower tower = (Tower) CThread.currentThread();
-        int range = tower.getRadarRange();
-        Position pos = tower.getPosition();
-        List<Position> positions = new ArrayList<>();
-
-        do {
-            for(int x = pos.getCoordinateX() - range; x <= pos.getCoordinateX() + range; x++) {
-                for(int y = pos.getCoordinateY() - range; y <= pos.getCoordinateY() + range; y++) {
-                    if(x >= 0 && x < maze.numberOfColumns && y >= 0 && y < maze.numberOfLines) {
-                        Position tempPos = new Position(x, y);
-                        positions.addAll(monsterLocations.keySet().parallelStream().
-                                filter(position -> position.equals(tempPos)).collect(Collectors.toList()));
-                    }
-                }
-            }
+        RadarSubscription subscription = radarSubscriptions.get(tower);
+        int count;
 
-            if(positions.isEmpty()) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+        assert subscription != null;
+
+        long started = System.nanoTime();
+        int wakeUps = 0;
+
+        while (true) {
+            long events = subscription.getEvents();
+
+            count = scanRadar(tower, found, health);
+
+            if(count > 0 || subscription.isClosed())
+                break;
+
+            stats.towerBlocked(true);
+
+            try {
+                subscription.await(events);
+            } finally {
+                stats.towerBlocked(false);
             }
-        } while (positions.isEmpty());
 
-        assert positions != null;
-        assert !positions.isEmpty();
+            wakeUps++;
+        }
+
+        if(wakeUps > 0) {
+            long waited = System.nanoTime() - started;
+
+            getMonstersInRangeStats.recordWait(waited, wakeUps);
+            listener.worldWaited("getMonstersInRange", tower.getId(), tower.getCell(), waited);
+        }
+
+        assert count > 0 || subscription.isClosed();
+
+        return count;
+    }
 
-        return positions;
+    /**
+     * Method to wake up a tower blocked on its radar for good, when it is stopped.<br>
+     * The radar of the tower no longer blocks afterwards.
+     *
+     * @param tower tower that stops.
+     */
+    public void stopTower(Tower tower) {
+        assert tower != null;
+
+        RadarSubscription subscription = radarSubscriptions.get(tower);
+
+        // a tower that was never added to the world has nothing to wake up
+        if(subscription != null)
+            subscription.close();
     }
 
     /**
-     * Method to shoot a monster if he is in that position.
+     * Method to get the monsters that are in the radar range of a tower, without waiting for them.
      *
-     * @param position position to shoot at.
+     * @param tower tower that uses the radar.
+     * @param found buffer where the coverage indices of the occupied cells are written, in the order of the
+     *              coverage, at least as large as the radar coverage of the tower.
+     * @param health buffer where the health of the monster in each occupied cell is written, in the same order,
+     *               or null if it is not needed.
+     *
+     * @return the number of indices written, possibly zero.
      */
-    public synchronized void shootPosition(Position position) {
-        assert CThread.currentThread() instanceof Tower;
+    public int scanRadar(Tower tower, int[] found, int[] health) {
+        assert tower != null;
+        assert found != null;
+
+        TowerCoverage coverage = tower.getCoverage();
+
+        assert found.length >= coverage.getRadarSize();
+        assert health == null || health.length >= coverage.getRadarSize();
+
+        int count;
+
+        // the health is only read under the lock, since monsters may leave the world during an optimistic read
+        if(health == null && coverage.getNumberOfRegions() == 1) {
+            StampedLock lock = locks[coverage.getRegion(0)];
+            long stamp = lock.tryOptimisticRead();
+
+            count = scanCoverage(coverage, found, null);
+
+            if(lock.validate(stamp)) {
+                scanRadarStats.recordOptimisticRead();
+                return count;
+            }
+        }
 
-        Tower tower = (Tower) CThread.currentThread();
-        Monster monster = monsterLocations.get(position);
+        long requested = System.nanoTime();
 
-        if(monster != null)
-            monster.gotShot(tower.getShotDamage());
+        for(int i = 0; i < coverage.getNumberOfRegions(); i++)
+            locks[coverage.getRegion(i)].readLock();
+
+        long acquired = System.nanoTime();
+
+        try {
+            count = scanCoverage(coverage, found, health);
+        } finally {
+            for(int i = coverage.getNumberOfRegions() - 1; i >= 0; i--)
+                locks[coverage.getRegion(i)].tryUnlockRead();
+
+            scanRadarStats.recordLock(requested, acquired, System.nanoTime());
+        }
+
+        assert count >= 0;
+
+        return count;
     }
 
     /**
-     * Method to move monster to the next desired position.
+     * Method to shoot a monster if he is in that cell.<br>
+     * When damage is deferred, the damage is only recorded, and inflicted by the next call to applyDamage.
+     *
+     * @param tower tower that shoots.
+     * @param cell cell to shoot at.
      */
-    public synchronized void moveMonster() {
-        assert CThread.currentThread() instanceof Monster;
+    public void shootPosition(Tower tower, int cell) {
+        assert tower != null;
+        assert isCellInMap(cell);
 
-        Monster monster = (Monster) CThread.currentThread();
-        Position initialPosition = this.monsterLocations.entrySet().parallelStream().filter(entry -> entry.getValue().equals(monster)).
-                findFirst().get().getKey();
-        Position finalPosition = monster.getActualPosition();
+        StampedLock lock = locks[regions.getRegion(cell)];
 
-        while (!isPositionAvailable(finalPosition))
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        if(damageBuffer != null) {
+            long stamp = lock.tryOptimisticRead();
+            int handle = occupancy.get(cell % numberOfColumns, cell / numberOfColumns);
+
+            // no monster enters or leaves the world while damage is recorded, so a valid read is enough
+            if(lock.validate(stamp)) {
+                shootPositionStats.recordOptimisticRead();
+
+                if(handle != MonsterStore.NO_HANDLE)
+                    damageBuffer.record(handle, tower.getShotDamage());
+
+                return;
             }
+        }
 
-        this.maze.board.move(monsterGelem, initialPosition.getCoordinateY(), initialPosition.getCoordinateX(),
-                finalPosition.getCoordinateY(), finalPosition.getCoordinateX());
+        long requested = System.nanoTime();
+        long stamp = lock.readLock();
+        long acquired = System.nanoTime();
 
-        this.monsterLocations.remove(initialPosition);
-        this.monsterLocations.put(finalPosition, monster);
+        try {
+            int handle = occupancy.get(cell % numberOfColumns, cell / numberOfColumns);
 
-        notifyAll();
+            if(handle != MonsterStore.NO_HANDLE && damageBuffer != null)
+                damageBuffer.record(handle, tower.getShotDamage());
+            else if(handle != MonsterStore.NO_HANDLE)
+                monsters.damage(handle, tower.getShotDamage());
+        } finally {
+            lock.unlockRead(stamp);
+            shootPositionStats.recordLock(requested, acquired, System.nanoTime());
+        }
+    }
+
+    /**
+     * Makes shots record their damage in a buffer, instead of inflicting it right away.<br>
+     * Used by engines that advance the world in ticks, that apply the damage of every shot
+     * at once, with applyDamage, after the towers advanced. Shots then do not lock the world,
+     * and no monster may move, enter or leave the world between a shot and the next applyDamage.
+     * Must be called before any tower shoots.
+     */
+    public void deferDamage() {
+        assert damageBuffer == null;
+
+        this.damageBuffer = new DamageBuffer(monsters.getCapacity());
+    }
+
+    /**
+     * Inflicts the damage recorded by the shots since the last call.<br>
+     * Must only be called when damage is deferred, and not while towers shoot.
+     *
+     * @return the number of monsters hit.
+     */
+    public int applyDamage() {
+        assert damageBuffer != null;
+
+        return damageBuffer.apply(monsters);
+    }
+
+    /**
+     * Method to move monster to the next desired cell.<br>
+     * Blocks while the desired cell is occupied.
+     *
+     * @param handle handle of the monster to be moved.
+     * @param cell cell where the monster is moved to.
+     */
+    public void moveMonster(int handle, int cell) {
+        assert isCellInMap(cell);
+
+        long started = System.nanoTime();
+        int wakeUps = 0;
+
+        while (true) {
+            long version = changeVersion();
+
+            if(tryMoveMonster(handle, cell))
+                break;
+
+            awaitChange(version);
+            wakeUps++;
+        }
+
+        if(wakeUps > 0) {
+            long waited = System.nanoTime() - started;
+
+            moveMonsterStats.recordWait(waited, wakeUps);
+            listener.worldWaited("moveMonster", monsters.getEntityId(handle), cell, waited);
+        }
+    }
+
+    /**
+     * Method to move monster to the next desired cell, if it is free.
+     *
+     * @param handle handle of the monster to be moved.
+     * @param cell cell where the monster is moved to.
+     *
+     * @return true if the monster was moved, false if the cell is occupied.
+     */
+    public boolean tryMoveMonster(int handle, int cell) {
+        assert isCellInMap(cell);
+
+        int x = cell % numberOfColumns;
+        int y = cell / numberOfColumns;
+
+        assert isPath(x, y);
+        assert monsters.isAllocated(handle);
+
+        // the position of a monster is only changed by the monster itself
+        int initialX = monsters.getCoordinateX(handle);
+        int initialY = monsters.getCoordinateY(handle);
+        int from = regions.getRegion(initialX, initialY);
+        int to = regions.getRegion(x, y);
+
+        RadarSubscription[] subscriptions;
+        long requested = System.nanoTime();
+        long firstStamp = locks[Math.min(from, to)].writeLock();
+        long secondStamp = from != to ? locks[Math.max(from, to)].writeLock() : 0;
+        long acquired = System.nanoTime();
+
+        try {
+            if(occupancy.get(x, y) != MonsterStore.NO_HANDLE)
+                return false;
+
+            this.occupancy.move(handle, x, y);
+            this.renderer.moveMonster(initialX, initialY, x, y);
+            this.listener.monsterMoved(monsters.getEntityId(handle), cell);
+            subscriptions = cellSubscriptions.get(cell);
+
+            assert occupancy.get(x, y) == handle;
+        } finally {
+            if(from != to)
+                locks[Math.max(from, to)].unlockWrite(secondStamp);
+
+            locks[Math.min(from, to)].unlockWrite(firstStamp);
+            tryMoveMonsterStats.recordLock(requested, acquired, System.nanoTime());
+        }
+
+        signalChange();
+        signalRadars(subscriptions);
+
+        return true;
     }
 
     /**
@@ -229,11 +719,47 @@ public class WorldState {
      *
      * @return true if the position is available to place a tower, false otherwise.
      */
-    public synchronized boolean isPositionForTower(Position position) {
+    public boolean isPositionForTower(Position position) {
         assert position != null;
         assert isPositionInMap(position);
 
-        return this.maze.isWall(position.getCoordinateY(), position.getCoordinateX());
+        return !this.map.isPath(position.getCoordinateX(), position.getCoordinateY());
+    }
+
+    /**
+     * Getter for the store that keeps the state of the monsters in the world.
+     *
+     * @return the monster store.
+     */
+    public MonsterStore getMonsterStore() {
+        return this.monsters;
+    }
+
+    /**
+     * Getter for the listener of the events of the simulation.
+     *
+     * @return the listener.
+     */
+    public SimulationListener getListener() {
+        return this.listener;
+    }
+
+    /**
+     * Getter for the statistics of the use of the world locks.
+     *
+     * @return the statistics, that may be published through JMX.
+     */
+    public WorldStateStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Getter for the regions of the map, each guarded by its own lock.
+     *
+     * @return the region grid.
+     */
+    public RegionGrid getRegions() {
+        return this.regions;
     }
 
     /**
@@ -256,41 +782,132 @@ public class WorldState {
         assert position != null;
         assert isPositionInMap(position);
 
-        return this.maze.isOutside(position.getCoordinateY(), position.getCoordinateX());
+        return isPath(position.getCoordinateX(), position.getCoordinateY());
     }
 
     /**
-     * Method to check if the monster has the right heading.
+     * Method to check if there is path next to a cell, in a given direction.
      *
+     * @param cell cell where the monster is.
      * @param direction direction to where the monster is facing.
      *
      * @return true if there is a path in that direction, false otherwise.
      */
-    public boolean isPathInDirection(Direction direction) {
+    public boolean isPathInDirection(int cell, Direction direction) {
+        assert isCellInMap(cell);
         assert direction != null;
-        assert CThread.currentThread() instanceof Monster;
 
-        Monster monster = (Monster) CThread.currentThread();
-        Position pos = monster.getActualPosition();
+        int next = neighbourOf(cell, direction);
+
+        return next != NO_CELL && this.map.isPath(next);
+    }
+
+    /**
+     * Method to get the cell next to another, in a given direction.
+     *
+     * @param cell cell to start from.
+     * @param direction direction to follow.
+     *
+     * @return the neighbour cell, or NO_CELL if it is outside the map.
+     */
+    public int neighbourOf(int cell, Direction direction) {
+        assert isCellInMap(cell);
+        assert direction != null;
+
+        int x = cell % numberOfColumns;
+        int y = cell / numberOfColumns;
 
         switch (direction) {
             case NORTH:
-                pos = new Position(pos.getCoordinateX(), pos.getCoordinateY()-1);
-                break;
+                return y > 0 ? cell - numberOfColumns : NO_CELL;
             case EAST:
-                pos = new Position(pos.getCoordinateX()+1, pos.getCoordinateY());
-                break;
+                return x < numberOfColumns - 1 ? cell + 1 : NO_CELL;
             case SOUTH:
-                pos = new Position(pos.getCoordinateX(), pos.getCoordinateY()+1);
-                break;
+                return y < numberOfLines - 1 ? cell + numberOfColumns : NO_CELL;
             case WEST:
-                pos = new Position(pos.getCoordinateX()-1, pos.getCoordinateY());
-                break;
+                return x > 0 ? cell - 1 : NO_CELL;
+            default:
+                return NO_CELL;
         }
+    }
 
-        assert isPositionInMap(pos);
+    /**
+     * Method to get the packed index of a cell.
+     *
+     * @param coordinateX coordinate in the XX axis.
+     * @param coordinateY coordinate in the YY axis.
+     *
+     * @return the index of the cell.
+     */
+    public int cellOf(int coordinateX, int coordinateY) {
+        assert coordinateX >= 0 && coordinateX < numberOfColumns;
+        assert coordinateY >= 0 && coordinateY < numberOfLines;
+
+        return coordinateY * numberOfColumns + coordinateX;
+    }
+
+    /**
+     * Method to get the coordinate in the XX axis of a cell.
+     *
+     * @param cell index of the cell.
+     *
+     * @return coordinate in the XX axis.
+     */
+    public int getCoordinateX(int cell) {
+        assert isCellInMap(cell);
+
+        return cell % numberOfColumns;
+    }
+
+    /**
+     * Method to get the coordinate in the YY axis of a cell.
+     *
+     * @param cell index of the cell.
+     *
+     * @return coordinate in the YY axis.
+     */
+    public int getCoordinateY(int cell) {
+        assert isCellInMap(cell);
+
+        return cell / numberOfColumns;
+    }
 
-        return this.maze.isOutside(pos.getCoordinateY(), pos.getCoordinateX());
+    /**
+     * Method to get the number of columns of the map.
+     *
+     * @return a positive number of columns.
+     */
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    /**
+     * Method to get the number of lines of the map.
+     *
+     * @return a positive number of lines.
+     */
+    public int getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    /**
+     * Method to get the number of cells of the map.
+     *
+     * @return a positive number of cells, every packed index is smaller than it.
+     */
+    public int getNumberOfCells() {
+        return numberOfColumns * numberOfLines;
+    }
+
+    /**
+     * Method to verify if a packed cell index is inside the map.
+     *
+     * @param cell index of the cell.
+     *
+     * @return true if the cell is inside the map, false otherwise.
+     */
+    public boolean isCellInMap(int cell) {
+        return cell >= 0 && cell < numberOfColumns * numberOfLines;
     }
 
     /**
@@ -312,7 +929,88 @@ public class WorldState {
     public boolean isPositionInMap(Position position) {
         assert position != null;
 
-        return position.getCoordinateX() >= 0 && position.getCoordinateX() < maze.numberOfColumns &&
-                position.getCoordinateY() >= 0 && position.getCoordinateY() < maze.numberOfLines;
+        return position.getCoordinateX() >= 0 && position.getCoordinateX() < numberOfColumns &&
+                position.getCoordinateY() >= 0 && position.getCoordinateY() < numberOfLines;
+    }
+
+    /* Writes the coverage indices of the occupied cells, and the health of their monsters if requested */
+    private int scanCoverage(TowerCoverage coverage, int[] found, int[] health) {
+        int count = 0;
+
+        for(int i = 0; i < coverage.getRadarSize(); i++) {
+            int cell = coverage.getRadarCell(i);
+            int handle = occupancy.get(cell % numberOfColumns, cell / numberOfColumns);
+
+            if(handle == MonsterStore.NO_HANDLE)
+                continue;
+
+            if(health != null)
+                health[count] = monsters.getHealth(handle);
+
+            found[count++] = i;
+        }
+
+        return count;
+    }
+
+    /* Checks if a cell of the map belongs to the path */
+    private boolean isPath(int coordinateX, int coordinateY) {
+        return this.map.isPath(coordinateX, coordinateY);
+    }
+
+    /* Index of a position in the arrays indexed by cell */
+    private int cellIndex(Position position) {
+        return position.getCoordinateY() * numberOfColumns + position.getCoordinateX();
+    }
+
+    /* Wakes up the towers that cover the cell a monster entered */
+    private void signalRadars(RadarSubscription[] subscriptions) {
+        if(subscriptions == null)
+            return;
+
+        for(RadarSubscription subscription : subscriptions)
+            subscription.signal();
+    }
+
+    /* Current version of the world, must be read before checking the condition that is awaited */
+    private long changeVersion() {
+        return changeVersion.get();
+    }
+
+    /* Blocks until the world changes after the given version */
+    private void awaitChange(long version) {
+        stats.monsterBlocked(true);
+        changeLock.lock();
+        changeWaiters++;
+
+        try {
+            while (changeVersion.get() == version)
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+        } finally {
+            changeWaiters--;
+            changeLock.unlock();
+            stats.monsterBlocked(false);
+        }
+    }
+
+    /* Wakes up all the monsters waiting for the world to change */
+    private void signalChange() {
+        changeVersion.incrementAndGet();
+
+        // a waiter that is not counted yet still sees the new version before it awaits
+        if(changeWaiters == 0)
+            return;
+
+        changeLock.lock();
+
+        try {
+            changed.signalAll();
+        } finally {
+            changeLock.unlock();
+        }
     }
 }